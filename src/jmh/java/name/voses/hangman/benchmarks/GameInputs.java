@@ -0,0 +1,54 @@
+package name.voses.hangman.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Words and guess lists the benchmarks are parameterized over
+final class GameInputs {
+    private GameInputs() {}
+
+    static String word(String name) {
+        switch (name) {
+            case "short":
+                return "jazz";
+            case "long":
+                return "zigzagging";
+            case "unicodePhrase":
+                return "¡Día de los muertos! naïve café ☃ smörgåsbord 😀 über-jalapeño";
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    static String[] guesses(String name) {
+        switch (name) {
+            case "none":
+                return new String[0];
+            case "few":
+                return new String[] { "e", "a", "z", "q", "g" };
+            case "alphabet":
+                return alphabet(1);
+            // the alphabet plus accented and astral letters, more guesses than letters in any word
+            case "alphabetAndUnicode": {
+                List<String> guesses = new ArrayList<>(List.of(alphabet(1)));
+                guesses.addAll(List.of("í", "ï", "é", "ö", "å", "ü", "ñ", "¡", "☃", "😀"));
+                return guesses.toArray(new String[0]);
+            }
+            // every letter four times over, as stored guesses can be after retries and races
+            case "duplicates":
+                return alphabet(4);
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    private static String[] alphabet(int repeats) {
+        String[] guesses = new String[26 * repeats];
+        for (int r = 0; r < repeats; r++) {
+            for (int l = 0; l < 26; l++) {
+                guesses[r * 26 + l] = String.valueOf((char) ('a' + (l * 7 + r) % 26));
+            }
+        }
+        return guesses;
+    }
+}
@@ -0,0 +1,53 @@
+package name.voses.hangman.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.PlayState;
+
+// Writing a game response body, as the controller returns it ({"game": ...})
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GameSerializationBenchmark {
+    @Param({ "short", "long", "unicodePhrase" })
+    private String word;
+
+    @Param({ "none", "few", "alphabetAndUnicode" })
+    private String guesses;
+
+    private final ObjectWriter writer = new ObjectMapper().writer();
+    private Map<String, Game> body;
+
+    @Setup
+    public void setUp() {
+        String wordBeingGuessed = GameInputs.word(word);
+        PlayState playState = PlayState.build(30, GameInputs.guesses(guesses), wordBeingGuessed);
+        body = Map.of("game", new Game("2bRnHqPe6gv1gNrFDNHEjp", 30, wordBeingGuessed, playState));
+    }
+
+    @Benchmark
+    public byte[] writeGame() throws JsonProcessingException {
+        return writer.writeValueAsBytes(body);
+    }
+}
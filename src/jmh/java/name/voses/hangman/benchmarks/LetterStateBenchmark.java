@@ -0,0 +1,61 @@
+package name.voses.hangman.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import name.voses.hangman.resources.LetterState;
+import name.voses.hangman.resources.PlayState;
+
+// The per letter objects built for every masked and missed letter of every response. The
+// uncached variant allocates the way fromCodePoint used to, run with -prof gc to compare.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LetterStateBenchmark {
+    @Param({ "short", "long", "unicodePhrase" })
+    private String word;
+
+    private int[] codePoints;
+    private PlayState playState;
+
+    @Setup
+    public void setUp() {
+        codePoints = GameInputs.word(word).codePoints().toArray();
+        playState = PlayState.build(10, GameInputs.guesses("few"), GameInputs.word(word));
+    }
+
+    @Benchmark
+    public void fromCodePoint(Blackhole blackhole) {
+        for (int codePoint : codePoints) {
+            blackhole.consume(LetterState.fromCodePoint(codePoint));
+        }
+    }
+
+    @Benchmark
+    public void fromCodePointUncached(Blackhole blackhole) {
+        for (int codePoint : codePoints) {
+            blackhole.consume(new LetterState(new String(new int[] { codePoint }, 0, 1)));
+        }
+    }
+
+    @Benchmark
+    public void maskedAndMissed(Blackhole blackhole) {
+        blackhole.consume(playState.getMaskedWord());
+        blackhole.consume(playState.getMissedGuesses());
+    }
+}
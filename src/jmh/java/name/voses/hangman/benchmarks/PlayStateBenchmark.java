@@ -0,0 +1,67 @@
+package name.voses.hangman.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import name.voses.hangman.resources.PlayState;
+import name.voses.hangman.resources.WordIndex;
+
+// Rebuilding the play state from stored guesses, done on every read and guess
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlayStateBenchmark {
+    @Param({ "short", "long", "unicodePhrase" })
+    private String word;
+
+    @Param({ "none", "few", "alphabet", "alphabetAndUnicode", "duplicates" })
+    private String guesses;
+
+    private String wordBeingGuessed;
+    private WordIndex wordIndex;
+    private String[] guessList;
+    private PlayState playState;
+    // a mix of repeats and new letters
+    private final String[] probes = new String[] { "a", "z", "☃", "x", "é", "😀", "j", "q" };
+
+    @Setup
+    public void setUp() {
+        wordBeingGuessed = GameInputs.word(word);
+        wordIndex = WordIndex.of(wordBeingGuessed);
+        guessList = GameInputs.guesses(guesses);
+        playState = PlayState.build(10, guessList, wordIndex);
+    }
+
+    // words not in the catalog are indexed on every build
+    @Benchmark
+    public PlayState buildFromWord() {
+        return PlayState.build(10, guessList, wordBeingGuessed);
+    }
+
+    @Benchmark
+    public PlayState buildFromIndex() {
+        return PlayState.build(10, guessList, wordIndex);
+    }
+
+    @Benchmark
+    public void ineligibleToGuessReason(Blackhole blackhole) {
+        for (String probe : probes) {
+            blackhole.consume(playState.ineligibleToGuessReason(probe));
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package name.voses.hangman.api;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import org.eclipse.jetty.websocket.api.SuspendToken;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import name.voses.hangman.logging.EventLog;
+import name.voses.hangman.persistence.GameInfoService;
+import name.voses.hangman.persistence.GuessResult;
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.GameJsonSerializers;
+import name.voses.hangman.resources.GuessOutcome;
+import name.voses.hangman.resources.PlayState;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.updates.GameUpdates;
+
+// One player's connection: join a game, then guess letters and get the state back after each,
+// without the overhead of a request per guess. Messages are small JSON text frames:
+//
+//   client: {"join":"<gameId>"}  {"guess":"a"}
+//   server: {"s":<state>} after a join, {"g":"a","o":"HIT|MISS|REPEAT|INELIGIBLE","s":<state>}
+//           after a guess, {"u":<state>} when someone else guesses in the joined game,
+//           {"e":"NOT_FOUND|NOT_JOINED|BAD_LETTER|BAD_MESSAGE|FAILED"} otherwise
+//
+// where a state is {"v":<letters guessed>,"r":<remaining wrong guesses>,"m":[<masked word,
+// null for letters not guessed yet>],"x":[<missed letters>]}.
+//
+// Once joined the connection is subscribed to the game's GameUpdates channel until it joins
+// another game or closes. Pushes are queued behind the replies like any other message, only the
+// newest one waits at a time, and one is dropped when the connection has already been sent that
+// state or a later one (which is how it skips the updates made by its own guesses).
+//
+// Messages are handled one at a time in the order received, guesses through the same
+// guessLetterAsync as PUT /games/{gameId}/guesses/{letter}. Every message holds a slot from
+// when it's read until its reply is written; with maxPending slots taken the connection stops
+// reading, so a client sending faster than its guesses are applied (or than it reads the
+// replies) is held back by TCP rather than queued for without bound.
+public class GamePlaySocket extends WebSocketAdapter {
+    private static Logger LOG = LoggerFactory.getLogger(GamePlaySocket.class);
+
+    private final GameInfoService gameInfoService;
+    private final GameUpdates gameUpdates;
+    private final EventLog eventLog;
+    private final ObjectMapper objectMapper;
+    private final int maxPending;
+
+    private final Counter guesses;
+    private final Counter suspends;
+    private final Counter pushes;
+
+    private final Consumer<Game> listener = this::push;
+
+    // guarded by this, gameId is only written from the reading thread
+    private String gameId;
+    private String subscribedGameId;
+    private int sentVersion = -1;
+    private Game pushedGame;
+    private boolean closed;
+    private CompletableFuture<Void> replies = CompletableFuture.completedFuture(null);
+    private int pending;
+    private SuspendToken suspendToken;
+
+    public GamePlaySocket(GameInfoService gameInfoService, GameUpdates gameUpdates, EventLog eventLog,
+                          ObjectMapper objectMapper, int maxPending, MetricRegistry metricRegistry) {
+        this.gameInfoService = gameInfoService;
+        this.gameUpdates = gameUpdates;
+        this.eventLog = eventLog;
+        this.objectMapper = objectMapper;
+        this.maxPending = maxPending;
+
+        this.guesses = metricRegistry.counter(MetricRegistry.name(GamePlaySocket.class, "guesses"));
+        this.suspends = metricRegistry.counter(MetricRegistry.name(GamePlaySocket.class, "suspends"));
+        this.pushes = metricRegistry.counter(MetricRegistry.name(GamePlaySocket.class, "pushes"));
+    }
+
+    @Override
+    public void onWebSocketText(String message) {
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(message);
+        } catch (JsonProcessingException e) {
+            reply(error("BAD_MESSAGE"));
+            return;
+        }
+
+        if (request.hasNonNull("join")) {
+            String joinedGameId = request.get("join").asText();
+            String unsubscribedGameId;
+            synchronized (this) {
+                gameId = joinedGameId;
+                unsubscribedGameId = subscribedGameId;
+                subscribedGameId = null;
+                sentVersion = -1;
+                pushedGame = null;
+            }
+            if (unsubscribedGameId != null) {
+                gameUpdates.unsubscribe(unsubscribedGameId, listener);
+            }
+            reply(() -> gameInfoService.findGameWithGuessesAsync(joinedGameId)
+                                       .thenApply((game) -> game == null ? error("NOT_FOUND") : joined(game)));
+        } else if (request.hasNonNull("guess")) {
+            String guessedGameId = gameId;
+            String letter = request.get("guess").asText();
+            if (guessedGameId == null) {
+                reply(error("NOT_JOINED"));
+            } else if (letter.length() != 1) {
+                reply(error("BAD_LETTER"));
+            } else {
+                guesses.inc();
+                reply(() -> gameInfoService.guessLetterAsync(guessedGameId, letter)
+                                           .thenApply((result) -> guessReply(guessedGameId, letter, result)));
+            }
+        } else {
+            reply(error("BAD_MESSAGE"));
+        }
+    }
+
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) {
+        super.onWebSocketClose(statusCode, reason);
+        leave();
+    }
+
+    @Override
+    public void onWebSocketError(Throwable cause) {
+        super.onWebSocketError(cause);
+        leave();
+    }
+
+    // Subscribing happens outside the lock: GameUpdates calls push with its channel locked
+    private Map<String, Object> joined(Game game) {
+        boolean subscribe = false;
+        synchronized (this) {
+            if (game.getId().equals(gameId)) {
+                sentVersion = version(game);
+                if (subscribedGameId == null && !closed) {
+                    subscribedGameId = game.getId();
+                    subscribe = true;
+                }
+            }
+        }
+
+        if (subscribe) {
+            gameUpdates.subscribe(game.getId(), listener);
+            boolean stale;
+            synchronized (this) {
+                stale = !game.getId().equals(subscribedGameId);
+            }
+            // closed or joined another game in the meantime, and may have unsubscribed before this subscribed
+            if (stale) {
+                gameUpdates.unsubscribe(game.getId(), listener);
+            }
+        }
+        return Map.of("s", state(game));
+    }
+
+    private void leave() {
+        String unsubscribedGameId;
+        synchronized (this) {
+            closed = true;
+            unsubscribedGameId = subscribedGameId;
+            subscribedGameId = null;
+            pushedGame = null;
+        }
+        if (unsubscribedGameId != null) {
+            gameUpdates.unsubscribe(unsubscribedGameId, listener);
+        }
+    }
+
+    private void push(Game game) {
+        synchronized (this) {
+            if (closed || !game.getId().equals(subscribedGameId)) {
+                return;
+            }
+
+            boolean queued = pushedGame != null;
+            if (!queued || version(game) > version(pushedGame)) {
+                pushedGame = game;
+            }
+            if (queued) {
+                return;
+            }
+        }
+        reply(() -> CompletableFuture.completedFuture(takePush()));
+    }
+
+    // null when there's nothing newer than what the connection has already been sent
+    private synchronized Map<String, Object> takePush() {
+        Game game = pushedGame;
+        pushedGame = null;
+        if (game == null || !game.getId().equals(subscribedGameId) || version(game) <= sentVersion) {
+            return null;
+        }
+
+        sentVersion = version(game);
+        pushes.inc();
+        return Map.of("u", state(game));
+    }
+
+    private synchronized void sent(Game game) {
+        if (game.getId().equals(gameId)) {
+            sentVersion = Math.max(sentVersion, version(game));
+        }
+    }
+
+    private static int version(Game game) {
+        return game.getPlayState().getGuessedLetterCount();
+    }
+
+    private Map<String, Object> guessReply(String gameId, String letter, GuessResult result) {
+        if (!result.isFound()) {
+            return error("NOT_FOUND");
+        }
+
+        GuessOutcome outcome;
+        GuessIneligibleReason ineligibleReason = result.getIneligibleReason();
+        if (ineligibleReason == GuessIneligibleReason.REPEAT) {
+            outcome = GuessOutcome.REPEAT;
+        } else if (ineligibleReason != null) {
+            outcome = GuessOutcome.INELIGIBLE;
+        } else {
+            boolean missed = result.getGame().getPlayState().isMissed(letter.codePointAt(0));
+            outcome = missed ? GuessOutcome.MISS : GuessOutcome.HIT;
+            eventLog.log(LOG, Map.of("action", "guess",
+                                     "gameId", gameId,
+                                     "letter", letter,
+                                     "result", "recorded_guess",
+                                     "data", Map.of("word", result.getGame().getWordBeingGuessed(),
+                                                    "via", "websocket")));
+        }
+
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("g", letter);
+        reply.put("o", outcome);
+        reply.put("s", state(result.getGame()));
+        sent(result.getGame());
+        return reply;
+    }
+
+    // Queued behind the replies to earlier messages, so replies go out in the order asked for.
+    // The work runs outside the lock, pushes queue from GameUpdates' threads too.
+    private void reply(Supplier<CompletableFuture<Map<String, Object>>> work) {
+        acquire();
+        CompletableFuture<Void> previous;
+        CompletableFuture<Void> next = new CompletableFuture<>();
+        synchronized (this) {
+            previous = replies;
+            replies = next;
+        }
+        previous.thenCompose((ignored) -> work.get())
+                .exceptionally((e) -> {
+                    LOG.warn("Handling a game play message failed", e);
+                    return error("FAILED");
+                })
+                .thenAccept(this::send)
+                .whenComplete((ignored, e) -> next.complete(null));
+    }
+
+    private void reply(Map<String, Object> reply) {
+        reply(() -> CompletableFuture.completedFuture(reply));
+    }
+
+    private static Map<String, Object> error(String error) {
+        return Map.of("e", error);
+    }
+
+    private static State state(Game game) {
+        return new State(game.getPlayState());
+    }
+
+    // Written straight from the play state's code points
+    @JsonSerialize(using = StateSerializer.class)
+    static class State {
+        private final PlayState playState;
+
+        State(PlayState playState) {
+            this.playState = playState;
+        }
+    }
+
+    static class StateSerializer extends StdSerializer<State> {
+        StateSerializer() {
+            super(State.class);
+        }
+
+        @Override
+        public void serialize(State state, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            GameJsonSerializers.writeCompactPlayState(state.playState, gen);
+        }
+    }
+
+    private void send(Map<String, Object> reply) {
+        if (reply == null || !isConnected()) {
+            release();
+            return;
+        }
+
+        try {
+            getRemote().sendString(objectMapper.writeValueAsString(reply), new WriteCallback() {
+                @Override
+                public void writeFailed(Throwable e) {
+                    release();
+                }
+
+                @Override
+                public void writeSuccess() {
+                    release();
+                }
+            });
+        } catch (JsonProcessingException | RuntimeException e) {
+            LOG.warn("Sending a game play reply failed", e);
+            release();
+        }
+    }
+
+    private synchronized void acquire() {
+        pending++;
+        if (pending >= maxPending && suspendToken == null && isConnected()) {
+            suspendToken = getSession().suspend();
+            suspends.inc();
+        }
+    }
+
+    private synchronized void release() {
+        pending--;
+        if (pending < maxPending && suspendToken != null) {
+            suspendToken.resume();
+            suspendToken = null;
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package name.voses.hangman.api;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import com.codahale.metrics.annotation.Timed;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,18 +22,29 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.info.Info;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import name.voses.hangman.logging.EventLog;
+import name.voses.hangman.persistence.BatchGuessResult;
 import name.voses.hangman.persistence.GameInfoService;
+import name.voses.hangman.persistence.GuessResult;
 import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.GuessOutcome;
+import name.voses.hangman.resources.PlayState;
 import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.updates.GameUpdates;
 
 @RestController
 @RequestMapping(path = "/games")
@@ -44,38 +58,129 @@ public class GamesController {
         public void setMaxWrongGuesses(Integer maxWrongGuesses) { this.maxWrongGuesses = maxWrongGuesses; }
     }
 
+    private static class BulkGameCreateOptions {
+        @Schema(description = "How many games to create", required = true)
+        private int count;
+
+        @Schema(description = "How many wrong guesses to allow in each game", required = false)
+        private Integer maxWrongGuesses;
+
+        public int getCount() { return this.count; }
+        public void setCount(int count) { this.count = count; }
+        public Integer getMaxWrongGuesses() { return this.maxWrongGuesses; }
+        public void setMaxWrongGuesses(Integer maxWrongGuesses) { this.maxWrongGuesses = maxWrongGuesses; }
+    }
+
+    private static class GuessBatch {
+        @ArraySchema(arraySchema = @Schema(description = "Letters to guess, applied in order"),
+                     schema = @Schema(type = "string", minLength = 1, maxLength = 1))
+        private List<String> letters;
+
+        public List<String> getLetters() { return this.letters; }
+        public void setLetters(List<String> letters) { this.letters = letters; }
+    }
+
     private static Logger LOG = LoggerFactory.getLogger(GamesController.class);
 
     @Autowired
     private GameInfoService gameInfoService;
 
+    @Autowired
+    private EventLog eventLog;
+
+    @Autowired
+    private GameUpdates gameUpdates;
+
     @Value("${games.defaultMaxWrongGuesses}")
     private int defaultMaxWrongGuesses;
 
+    // When enabled a guess is a single conditional write, rather than load + write + reload
+    @Value("${games.conditionalGuesses:true}")
+    private boolean conditionalGuesses;
+
+    @Value("${games.maxGuessesPerBatch:64}")
+    private int maxGuessesPerBatch;
+
+    @Value("${games.maxGamesPerBulkRequest:500}")
+    private int maxGamesPerBulkRequest;
+
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
     @Operation(description = "Start a new game")
     @ApiResponse(responseCode = "201", description = "New game created",
                  content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = Game.class)))
-    public ResponseEntity<Map<String, Game>> createGame(@RequestBody GameCreateOptions options)
-            throws JsonProcessingException {
+    public CompletableFuture<ResponseEntity<Map<String, Game>>> createGame(@RequestBody GameCreateOptions options) {
         if (options.getMaxWrongGuesses() == null)
             options.setMaxWrongGuesses(defaultMaxWrongGuesses);
 
-        Game game = gameInfoService.createGame(options.getMaxWrongGuesses());
+        // the current request is only available on the request thread, which the game may
+        // not be created on
+        UriComponentsBuilder gameUri = ServletUriComponentsBuilder.fromCurrentRequest()
+                                                                  .path("/{id}");
 
-        logJSON(Map.of("action", "gameCreate",
-                       "id", game.getId(),
-                       "data", Map.of("word", game.getWordBeingGuessed(),
-                       "maxWrongGuesses", game.getMaxWrongGuesses())));
+        return gameInfoService.createGameAsync(options.getMaxWrongGuesses()).thenApply((game) -> {
+            logJSON(Map.of("action", "gameCreate",
+                           "id", game.getId(),
+                           "data", Map.of("word", game.getWordBeingGuessed(),
+                           "maxWrongGuesses", game.getMaxWrongGuesses())));
 
-        URI uri = ServletUriComponentsBuilder.fromCurrentRequest()
-                                             .path("/{id}")
-                                             .buildAndExpand(game.getId())
-                                             .toUri();
+            URI uri = gameUri.buildAndExpand(game.getId())
+                             .toUri();
 
-        return ResponseEntity.created(uri).body(Map.of("game", game));
+            return ResponseEntity.created(uri).eTag(eTag(game)).body(Map.of("game", game));
+        });
+    }
+
+    @PostMapping(path = "bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Operation(description = "Start several new games at once")
+    @ApiResponse(responseCode = "201", description = "New games created",
+                 content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    array = @ArraySchema(schema = @Schema(implementation = Game.class))))
+    @ApiResponse(responseCode = "400", description = "Count missing or over the limit",
+                 content = @Content())
+    public ResponseEntity<Map<String, List<Game>>> createGames(@RequestBody BulkGameCreateOptions options) {
+        if (options.getCount() < 1 || options.getCount() > maxGamesPerBulkRequest) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (options.getMaxWrongGuesses() == null)
+            options.setMaxWrongGuesses(defaultMaxWrongGuesses);
+
+        List<Game> games = gameInfoService.createGames(options.getCount(), options.getMaxWrongGuesses());
+
+        for (Game game : games) {
+            logJSON(Map.of("action", "gameCreate",
+                           "id", game.getId(),
+                           "data", Map.of("word", game.getWordBeingGuessed(),
+                           "maxWrongGuesses", game.getMaxWrongGuesses())));
+        }
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("games", games));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Operation(description = "Retrieve several existing games at once")
+    @ApiResponse(responseCode = "200", description = "Games retrieved, in the order asked for. Ids that don't exist are listed under missingIds",
+                 content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
+    @ApiResponse(responseCode = "400", description = "No ids, or more than the limit",
+                 content = @Content())
+    public ResponseEntity<Map<String, List<?>>> getGames(@Parameter(description = "Comma separated game ids")
+                                                         @RequestParam("ids")
+                                                         List<String> gameIds) {
+        if (gameIds.isEmpty() || gameIds.size() > maxGamesPerBulkRequest) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<String, Game> games = gameInfoService.findGamesWithGuesses(gameIds);
+        List<String> missingIds = gameIds.stream()
+                                         .filter((gameId) -> !games.containsKey(gameId))
+                                         .distinct()
+                                         .collect(Collectors.toList());
+
+        return ResponseEntity.ok(Map.of("games", new ArrayList<>(games.values()),
+                                        "missingIds", missingIds));
     }
 
     @GetMapping("{gameId}")
@@ -84,15 +189,38 @@ public class GamesController {
     @ApiResponse(responseCode = "200", description = "Game retrieved",
                  content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = Game.class)))
+    @ApiResponse(responseCode = "304", description = "Game unchanged since the version in If-None-Match",
+                 content = @Content())
     @ApiResponse(responseCode = "404", description = "Game with given id not found",
                  content = @Content())
-    public ResponseEntity<Map<String, Game>> getGame(@PathVariable String gameId) {
-        Game game = gameInfoService.findGameWithGuesses(gameId);
-        if (game == null) {
-            return ResponseEntity.notFound().build();
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Game>>> getGame(@PathVariable String gameId) {
+        // a 304 for a matching If-None-Match is sent by Spring when handling the response
+        // entity, without writing the body
+        return gameInfoService.findGameWithGuessesAsync(gameId).thenApply((game) -> {
+            if (game == null) {
+                return ResponseEntity.notFound().build();
+            }
 
-        return ResponseEntity.ok(Map.of("game", game));
+            return ResponseEntity.ok().eTag(eTag(game)).body(Map.of("game", game));
+        });
+    }
+
+    @GetMapping(path = "{gameId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Timed
+    @Operation(description = "Watch a game: a stream of server-sent events, each carrying the play state after a guess. Starts with the current state and ends once the game is over.")
+    @ApiResponse(responseCode = "200", description = "Event stream (\"playState\" events, the id is the number of letters guessed)",
+                 content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                                    schema = @Schema(implementation = PlayState.class)))
+    @ApiResponse(responseCode = "404", description = "Game with given id not found",
+                 content = @Content())
+    public CompletableFuture<ResponseEntity<SseEmitter>> watchGame(@PathVariable String gameId) {
+        return gameInfoService.findGameWithGuessesAsync(gameId).thenApply((game) -> {
+            if (game == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok(gameUpdates.watch(game));
+        });
     }
 
     @PutMapping("{gameId}/guesses/{letter}")
@@ -105,20 +233,29 @@ public class GamesController {
                  content = @Content())
     @ApiResponse(responseCode = "400", description = "Game finished or invalid letter",
                  content = @Content())
-    public ResponseEntity<Map<String, Game>> guessLetter(
+    public CompletableFuture<ResponseEntity<Map<String, Game>>> guessLetter(
                                     @PathVariable("gameId")
                                     String gameId,
 
                                     @Schema(type = "string", minLength = 1, maxLength = 1)
                                     @PathVariable("letter")
-                                    String letter) throws JsonProcessingException {
+                                    String letter) {
         if (letter.length() != 1) {
             logGuessResult(gameId, letter, "bad_length", Map.of("letterLength", letter.length(),
                                                                 "codePoints", letter.codePoints().toArray()));
             // TODO: could return why this is a bad request in a message
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        if (conditionalGuesses) {
+            return gameInfoService.guessLetterAsync(gameId, letter)
+                                  .thenApply((result) -> conditionalGuessResponse(gameId, letter, result));
         }
 
+        return CompletableFuture.completedFuture(loadAndStoreGuess(gameId, letter));
+    }
+
+    private ResponseEntity<Map<String, Game>> loadAndStoreGuess(String gameId, String letter) {
         Game game = gameInfoService.findGameWithGuesses(gameId);
         if (game == null) {
             return ResponseEntity.notFound().build();
@@ -155,10 +292,81 @@ public class GamesController {
             return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.ok(Map.of("game", game));
+        return ResponseEntity.ok().eTag(eTag(game)).body(Map.of("game", game));
+    }
+
+    @PostMapping(path = "{gameId}/guesses", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Operation(description = "Guess several letters in order, as if each were guessed on its own")
+    @ApiResponse(responseCode = "200", description = "Guesses applied, returns the state of the game after all of them and the outcome of each letter (HIT, MISS, REPEAT or INELIGIBLE once the game is over)",
+                 content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
+    @ApiResponse(responseCode = "404", description = "Game with given id not found",
+                 content = @Content())
+    @ApiResponse(responseCode = "400", description = "No letters, too many letters, or an invalid letter",
+                 content = @Content())
+    @ApiResponse(responseCode = "409", description = "The game kept changing while the guesses were applied, none of them were, try again",
+                 content = @Content())
+    public ResponseEntity<Map<String, Object>> guessLetters(@PathVariable("gameId") String gameId,
+                                                            @RequestBody GuessBatch batch) {
+        List<String> letters = batch.getLetters();
+        if (letters == null || letters.isEmpty() || letters.size() > maxGuessesPerBatch) {
+            logGuessResult(gameId, "", "bad_batch_size", Map.of("letterCount", letters == null ? 0 : letters.size()));
+            return ResponseEntity.badRequest().build();
+        }
+        for (String letter : letters) {
+            if (letter == null || letter.length() != 1) {
+                logGuessResult(gameId, String.valueOf(letter), "bad_length", Map.of("letterLength", letter == null ? 0 : letter.length()));
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        BatchGuessResult result = gameInfoService.guessLetters(gameId, letters);
+        if (result.isConflicted()) {
+            logGuessResult(gameId, String.join("", letters), "conflicted_guesses", Map.of());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (!result.isFound()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        List<Map<String, Object>> outcomes = new ArrayList<>(letters.size());
+        for (int i = 0; i < letters.size(); i++) {
+            GuessOutcome outcome = result.getOutcomes().get(i);
+            outcomes.add(Map.of("letter", letters.get(i), "outcome", outcome));
+        }
+        logGuessResult(gameId, String.join("", letters), "recorded_guesses", Map.of("outcomes", result.getOutcomes()));
+
+        return ResponseEntity.ok(Map.of("game", result.getGame(), "outcomes", outcomes));
+    }
+
+    // The eligibility checks are enforced by the store as part of recording the guess, and the
+    // state it hands back is the state after the guess, so there's nothing to reload.
+    private ResponseEntity<Map<String, Game>> conditionalGuessResponse(String gameId, String letter, GuessResult result) {
+        if (!result.isFound()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        GuessIneligibleReason ineligibleReason = result.getIneligibleReason();
+        if (ineligibleReason == null) {
+            logGuessResult(gameId, letter, "recorded_guess", Map.of("word", result.getGame().getWordBeingGuessed()));
+        } else {
+            logGuessResult(gameId, letter, "ineligible_reason", Map.of("ineligibleToGuessReason", ineligibleReason.name()));
+        }
+
+        if (ineligibleReason != null && ineligibleReason != GuessIneligibleReason.REPEAT) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok().eTag(eTag(result.getGame())).body(Map.of("game", result.getGame()));
+    }
+
+    // Guesses are only ever added, and each one that counts adds a guessed letter, so the number
+    // of guessed letters identifies a version of a game.
+    private static String eTag(Game game) {
+        return Integer.toString(game.getPlayState().getGuessedLetterCount());
     }
 
-    private void logGuessResult(String gameId, String letter, String result, Map<?, ?> data) throws JsonProcessingException {
+    private void logGuessResult(String gameId, String letter, String result, Map<?, ?> data) {
         logJSON(Map.of("action", "guess",
                        "gameId", gameId,
                        "letter", letter,
@@ -166,7 +374,8 @@ public class GamesController {
                        "data", data));
     }
 
-    private void logJSON(Map<?, ?> message) throws JsonProcessingException {
-        LOG.info(new ObjectMapper().writeValueAsString(message));
+    // serialized and written off the request thread
+    private void logJSON(Map<?, ?> message) {
+        eventLog.log(LOG, message);
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package name.voses.hangman.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metered;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Hidden;
+
+// Everything in the MetricRegistry, for operators rather than players. Timer durations are in
+// milliseconds, rates per second.
+@RestController
+@RequestMapping(path = "/metrics")
+@Hidden
+public class MetricsController {
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> metrics(@RequestParam(required = false, defaultValue = "") String prefix) {
+        Map<String, Object> timers = new LinkedHashMap<>();
+        metricRegistry.getTimers((name, metric) -> name.startsWith(prefix))
+                      .forEach((name, timer) -> timers.put(name, timer(timer)));
+
+        Map<String, Object> histograms = new LinkedHashMap<>();
+        metricRegistry.getHistograms((name, metric) -> name.startsWith(prefix))
+                      .forEach((name, histogram) -> histograms.put(name, histogram(histogram)));
+
+        Map<String, Object> meters = new LinkedHashMap<>();
+        metricRegistry.getMeters((name, metric) -> name.startsWith(prefix))
+                      .forEach((name, meter) -> meters.put(name, rates(meter)));
+
+        Map<String, Object> counters = new LinkedHashMap<>();
+        metricRegistry.getCounters((name, metric) -> name.startsWith(prefix))
+                      .forEach((name, counter) -> counters.put(name, counter.getCount()));
+
+        Map<String, Object> gauges = new LinkedHashMap<>();
+        metricRegistry.getGauges((name, metric) -> name.startsWith(prefix))
+                      .forEach((name, gauge) -> gauges.put(name, gauge.getValue()));
+
+        return Map.of("timers", timers,
+                      "histograms", histograms,
+                      "meters", meters,
+                      "counters", counters,
+                      "gauges", gauges);
+    }
+
+    private static Map<String, Object> timer(Timer timer) {
+        Map<String, Object> values = rates(timer);
+        Snapshot snapshot = timer.getSnapshot();
+        values.put("min", snapshot.getMin() / NANOS_PER_MILLI);
+        values.put("mean", snapshot.getMean() / NANOS_PER_MILLI);
+        values.put("p50", snapshot.getMedian() / NANOS_PER_MILLI);
+        values.put("p90", snapshot.getValue(0.90) / NANOS_PER_MILLI);
+        values.put("p99", snapshot.get99thPercentile() / NANOS_PER_MILLI);
+        values.put("p999", snapshot.get999thPercentile() / NANOS_PER_MILLI);
+        values.put("max", snapshot.getMax() / NANOS_PER_MILLI);
+        return values;
+    }
+
+    private static Map<String, Object> histogram(Histogram histogram) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        Snapshot snapshot = histogram.getSnapshot();
+        values.put("count", histogram.getCount());
+        values.put("min", snapshot.getMin());
+        values.put("mean", snapshot.getMean());
+        values.put("p50", snapshot.getMedian());
+        values.put("p99", snapshot.get99thPercentile());
+        values.put("max", snapshot.getMax());
+        return values;
+    }
+
+    private static Map<String, Object> rates(Metered metered) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", metered.getCount());
+        values.put("m1Rate", metered.getOneMinuteRate());
+        values.put("m5Rate", metered.getFiveMinuteRate());
+        values.put("meanRate", metered.getMeanRate());
+        return values;
+    }
+}
@@ -1,17 +1,32 @@
 package name.voses.hangman.config;
 
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsyncClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.retry.PredefinedBackoffStrategies;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.util.StringUtils;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 import org.socialsignin.spring.data.dynamodb.repository.config.EnableDynamoDBRepositories;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
+import name.voses.hangman.persistence.DynamoDBCapacity;
+import name.voses.hangman.persistence.DynamoDBClientMetrics;
 import name.voses.hangman.persistence.GameInfoServiceImpl;
 
 @Configuration
@@ -31,10 +46,131 @@ public class DynamoDBConfig {
     @Value("${amazon.aws.secretkey}")
     private String amazonAWSSecretKey;
 
+    @Value("${amazon.dynamodb.async.threads:50}")
+    private int amazonDynamoDBAsyncThreads;
+
+    // The defaults are the SDK's (with DynamoDB's retry policy), spelled out so they can be tuned
+    @Value("${amazon.dynamodb.client.maxConnections:50}")
+    private int maxConnections;
+
+    // how long a pooled connection may be reused for, 0 for no limit
+    @Value("${amazon.dynamodb.client.connectionTtl:0}")
+    private Duration connectionTtl;
+
+    @Value("${amazon.dynamodb.client.connectionMaxIdle:60s}")
+    private Duration connectionMaxIdle;
+
+    @Value("${amazon.dynamodb.client.validateAfterInactivity:5s}")
+    private Duration validateAfterInactivity;
+
+    @Value("${amazon.dynamodb.client.tcpKeepAlive:false}")
+    private boolean tcpKeepAlive;
+
+    @Value("${amazon.dynamodb.client.connectionTimeout:10s}")
+    private Duration connectionTimeout;
+
+    @Value("${amazon.dynamodb.client.socketTimeout:50s}")
+    private Duration socketTimeout;
+
+    // per attempt, 0 for none
+    @Value("${amazon.dynamodb.client.requestTimeout:0}")
+    private Duration requestTimeout;
+
+    // across all attempts, 0 for none
+    @Value("${amazon.dynamodb.client.clientExecutionTimeout:0}")
+    private Duration clientExecutionTimeout;
+
+    @Value("${amazon.dynamodb.client.maxErrorRetry:10}")
+    private int maxErrorRetry;
+
+    @Value("${amazon.dynamodb.client.retryBaseDelay:25ms}")
+    private Duration retryBaseDelay;
+
+    @Value("${amazon.dynamodb.client.throttledRetryBaseDelay:500ms}")
+    private Duration throttledRetryBaseDelay;
+
+    @Value("${amazon.dynamodb.client.retryMaxBackoff:20s}")
+    private Duration retryMaxBackoff;
+
+    // capacity units per second calls are paced to, 0 for no limit
+    @Value("${amazon.dynamodb.limiter.readCapacity:0}")
+    private double limiterReadCapacity;
+
+    @Value("${amazon.dynamodb.limiter.writeCapacity:0}")
+    private double limiterWriteCapacity;
+
+    @Value("${amazon.dynamodb.limiter.burst:1s}")
+    private Duration limiterBurst;
+
+    @Value("${amazon.dynamodb.limiter.maxWait:1s}")
+    private Duration limiterMaxWait;
+
     @Bean
-    public AmazonDynamoDB amazonDynamoDB() {
+    public ClientConfiguration dynamoDBClientConfiguration() {
+        RetryPolicy retryPolicy =
+            new RetryPolicy(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                            new PredefinedBackoffStrategies.SDKDefaultBackoffStrategy(Math.toIntExact(retryBaseDelay.toMillis()),
+                                                                                      Math.toIntExact(throttledRetryBaseDelay.toMillis()),
+                                                                                      Math.toIntExact(retryMaxBackoff.toMillis())),
+                            maxErrorRetry,
+                            true);
+
+        return new ClientConfiguration().withMaxConnections(maxConnections)
+                                        .withConnectionTTL(connectionTtl.isZero() ? -1 : connectionTtl.toMillis())
+                                        .withConnectionMaxIdleMillis(connectionMaxIdle.toMillis())
+                                        .withValidateAfterInactivityMillis(Math.toIntExact(validateAfterInactivity.toMillis()))
+                                        .withTcpKeepAlive(tcpKeepAlive)
+                                        .withConnectionTimeout(Math.toIntExact(connectionTimeout.toMillis()))
+                                        .withSocketTimeout(Math.toIntExact(socketTimeout.toMillis()))
+                                        .withRequestTimeout(Math.toIntExact(requestTimeout.toMillis()))
+                                        .withClientExecutionTimeout(Math.toIntExact(clientExecutionTimeout.toMillis()))
+                                        .withRetryPolicy(retryPolicy);
+    }
+
+    @Bean
+    public DynamoDBClientMetrics dynamoDBClientMetrics(MetricRegistry metricRegistry, MetricRegistry.MetricSupplier<Timer> timers) {
+        return new DynamoDBClientMetrics(metricRegistry, timers);
+    }
+
+    @Bean
+    public DynamoDBCapacity dynamoDBCapacity(MetricRegistry metricRegistry) {
+        return new DynamoDBCapacity(metricRegistry, limiterReadCapacity, limiterWriteCapacity, limiterBurst, limiterMaxWait);
+    }
+
+    // the async client is an AmazonDynamoDB too, this stays the one injected by default
+    @Bean
+    @Primary
+    public AmazonDynamoDB amazonDynamoDB(ClientConfiguration dynamoDBClientConfiguration,
+                                         DynamoDBClientMetrics dynamoDBClientMetrics,
+                                         DynamoDBCapacity dynamoDBCapacity) {
         AmazonDynamoDBClientBuilder builder
-          = AmazonDynamoDBClientBuilder.standard().withCredentials(amazonAWSCredentialsProvider());
+          = AmazonDynamoDBClientBuilder.standard()
+                                       .withCredentials(amazonAWSCredentialsProvider())
+                                       .withClientConfiguration(dynamoDBClientConfiguration)
+                                       .withMetricsCollector(dynamoDBClientMetrics)
+                                       .withRequestHandlers(dynamoDBCapacity);
+
+        if (!StringUtils.isNullOrEmpty(amazonDynamoDBEndpoint)) {
+            builder.setEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(amazonDynamoDBEndpoint, amazonDynamoDBRegion));
+        }
+
+        return builder.build();
+    }
+
+    // The SDK's async client runs each call on its own executor, freeing the request threads
+    // while calls are in flight
+    @Bean
+    @ConditionalOnProperty(name = "games.async", havingValue = "true")
+    public AmazonDynamoDBAsync amazonDynamoDBAsync(ClientConfiguration dynamoDBClientConfiguration,
+                                                  DynamoDBClientMetrics dynamoDBClientMetrics,
+                                                  DynamoDBCapacity dynamoDBCapacity) {
+        AmazonDynamoDBAsyncClientBuilder builder
+          = AmazonDynamoDBAsyncClientBuilder.standard()
+                                            .withCredentials(amazonAWSCredentialsProvider())
+                                            .withClientConfiguration(dynamoDBClientConfiguration)
+                                            .withMetricsCollector(dynamoDBClientMetrics)
+                                            .withRequestHandlers(dynamoDBCapacity)
+                                            .withExecutorFactory(() -> Executors.newFixedThreadPool(amazonDynamoDBAsyncThreads));
 
         if (!StringUtils.isNullOrEmpty(amazonDynamoDBEndpoint)) {
             builder.setEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(amazonDynamoDBEndpoint, amazonDynamoDBRegion));
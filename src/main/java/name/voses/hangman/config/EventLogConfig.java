@@ -0,0 +1,31 @@
+package name.voses.hangman.config;
+
+import java.time.Duration;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import name.voses.hangman.logging.EventLog;
+
+@Configuration
+public class EventLogConfig {
+    @Value("${games.eventLog.capacity:8192}")
+    private int capacity;
+
+    @Value("${games.eventLog.fullPolicy:DROP}")
+    private EventLog.FullPolicy fullPolicy;
+
+    @Value("${games.eventLog.blockTimeout:100ms}")
+    private Duration blockTimeout;
+
+    @Value("${games.eventLog.batchSize:256}")
+    private int batchSize;
+
+    @Bean(destroyMethod = "close")
+    public EventLog eventLog(MetricRegistry metricRegistry) {
+        return new EventLog(capacity, fullPolicy, blockTimeout, batchSize, metricRegistry);
+    }
+}
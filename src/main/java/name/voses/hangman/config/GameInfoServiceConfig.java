@@ -0,0 +1,134 @@
+package name.voses.hangman.config;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.unit.DataSize;
+
+import name.voses.hangman.persistence.CachingGameInfoService;
+import name.voses.hangman.persistence.CoalescingGameInfoService;
+import name.voses.hangman.persistence.GameCache;
+import name.voses.hangman.persistence.GameInfoService;
+import name.voses.hangman.persistence.InMemoryGameInfoService;
+import name.voses.hangman.persistence.LocalLogGameInfoService;
+import name.voses.hangman.persistence.NotifyingGameInfoService;
+import name.voses.hangman.persistence.SingleFlightGameInfoService;
+import name.voses.hangman.resources.WordCatalog;
+import name.voses.hangman.updates.GameUpdates;
+
+// Assembles the GameInfoService everything else is handed: the storage backend picked by
+// games.storage (dynamodb, memory or local), wrapped in whichever optional layers are enabled.
+@Configuration
+public class GameInfoServiceConfig {
+    @Value("${games.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${games.cache.maximumSize:10000}")
+    private int cacheMaximumSize;
+
+    @Value("${games.cache.ttl:5m}")
+    private Duration cacheTtl;
+
+    @Value("${games.singleFlightReads:true}")
+    private boolean singleFlightReads;
+
+    @Value("${games.coalesce.window:5ms}")
+    private Duration coalesceWindow;
+
+    @Value("${games.coalesce.maxBatchSize:64}")
+    private int coalesceMaxBatchSize;
+
+    @Value("${games.coalesce.threads:4}")
+    private int coalesceThreads;
+
+    @Value("${games.memory.maximumGames:100000}")
+    private int memoryMaximumGames;
+
+    @Value("${games.memory.expiry:6h}")
+    private Duration memoryExpiry;
+
+    @Value("${games.local.directory:data/games}")
+    private String localDirectory;
+
+    @Value("${games.local.segmentSize:64MB}")
+    private DataSize localSegmentSize;
+
+    @Value("${games.local.forceEveryWrite:false}")
+    private boolean localForceEveryWrite;
+
+    @Value("${games.local.expiry:6h}")
+    private Duration localExpiry;
+
+    @Value("${games.local.compactionInterval:1m}")
+    private Duration localCompactionInterval;
+
+    @Bean
+    @Qualifier("gameInfoBackend")
+    @ConditionalOnProperty(name = "games.storage", havingValue = "local")
+    public GameInfoService localLogGameInfoService(WordCatalog wordCatalog, MetricRegistry metricRegistry) throws IOException {
+        return new LocalLogGameInfoService(wordCatalog,
+                                           Paths.get(localDirectory),
+                                           Math.toIntExact(localSegmentSize.toBytes()),
+                                           localForceEveryWrite,
+                                           localExpiry,
+                                           localCompactionInterval,
+                                           metricRegistry);
+    }
+
+    @Bean
+    @Qualifier("gameInfoBackend")
+    @ConditionalOnProperty(name = "games.storage", havingValue = "memory")
+    public GameInfoService inMemoryGameInfoService(WordCatalog wordCatalog, MetricRegistry metricRegistry) {
+        return new InMemoryGameInfoService(wordCatalog, memoryMaximumGames, memoryExpiry, metricRegistry);
+    }
+
+    // a bean of its own so its threads are shut down with the context
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "games.coalesce.enabled", havingValue = "true")
+    public CoalescingGameInfoService coalescingGameInfoService(@Qualifier("gameInfoBackend") GameInfoService backend,
+                                                               MetricRegistry metricRegistry,
+                                                               MetricRegistry.MetricSupplier<Timer> timers) {
+        return new CoalescingGameInfoService(backend, coalesceWindow, coalesceMaxBatchSize, coalesceThreads,
+                                             metricRegistry, timers);
+    }
+
+    @Bean
+    @Primary
+    public GameInfoService gameInfoService(@Qualifier("gameInfoBackend") GameInfoService backend,
+                                           ObjectProvider<CoalescingGameInfoService> coalescing,
+                                           GameUpdates gameUpdates,
+                                           MetricRegistry metricRegistry) {
+        GameInfoService gameInfoService = backend;
+        CoalescingGameInfoService coalescingGameInfoService = coalescing.getIfAvailable();
+        if (coalescingGameInfoService != null) {
+            gameInfoService = coalescingGameInfoService;
+        }
+
+        // concurrent reads of a game share one store read, pointless when the store is in memory
+        if (singleFlightReads && !(backend instanceof InMemoryGameInfoService)) {
+            gameInfoService = new SingleFlightGameInfoService(gameInfoService, metricRegistry);
+        }
+
+        // spectators are sent the state every guess made through this node leads to
+        gameInfoService = new NotifyingGameInfoService(gameInfoService, gameUpdates::publish);
+
+        // everything is already in memory, a cache in front of it would only duplicate it
+        if (cacheEnabled && !(backend instanceof InMemoryGameInfoService)) {
+            gameInfoService = new CachingGameInfoService(gameInfoService,
+                                                         new GameCache(cacheMaximumSize, cacheTtl, metricRegistry));
+        }
+
+        return gameInfoService;
+    }
+}
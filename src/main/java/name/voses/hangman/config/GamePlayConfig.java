@@ -0,0 +1,54 @@
+package name.voses.hangman.config;
+
+import java.time.Duration;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import name.voses.hangman.api.GamePlaySocket;
+import name.voses.hangman.logging.EventLog;
+import name.voses.hangman.persistence.GameInfoService;
+import name.voses.hangman.updates.GameUpdates;
+
+// A WebSocket endpoint for playing a game over one connection, served by Jetty's own WebSocket
+// support next to the Spring MVC dispatcher.
+@Configuration
+@ConditionalOnProperty(name = "games.play.enabled", havingValue = "true", matchIfMissing = true)
+public class GamePlayConfig {
+    @Value("${games.play.path:/play}")
+    private String path;
+
+    @Value("${games.play.maxPending:16}")
+    private int maxPending;
+
+    @Value("${games.play.idleTimeout:5m}")
+    private Duration idleTimeout;
+
+    @Value("${games.play.maxMessageSize:1KB}")
+    private DataSize maxMessageSize;
+
+    @Bean
+    public ServletRegistrationBean<WebSocketServlet> gamePlayServlet(GameInfoService gameInfoService, GameUpdates gameUpdates,
+                                                                     EventLog eventLog, ObjectMapper objectMapper,
+                                                                     MetricRegistry metricRegistry) {
+        WebSocketServlet servlet = new WebSocketServlet() {
+            @Override
+            public void configure(WebSocketServletFactory factory) {
+                factory.getPolicy().setIdleTimeout(idleTimeout.toMillis());
+                factory.getPolicy().setMaxTextMessageSize(Math.toIntExact(maxMessageSize.toBytes()));
+                factory.setCreator((request, response) ->
+                    new GamePlaySocket(gameInfoService, gameUpdates, eventLog, objectMapper, maxPending, metricRegistry));
+            }
+        };
+        return new ServletRegistrationBean<>(servlet, path);
+    }
+}
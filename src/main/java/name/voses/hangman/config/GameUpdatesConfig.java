@@ -0,0 +1,37 @@
+package name.voses.hangman.config;
+
+import java.time.Duration;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import name.voses.hangman.persistence.GameInfoService;
+import name.voses.hangman.updates.GameUpdates;
+
+@Configuration
+public class GameUpdatesConfig {
+    @Value("${games.updates.bufferSize:16}")
+    private int bufferSize;
+
+    @Value("${games.updates.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${games.updates.pollInterval:0s}")
+    private Duration pollInterval;
+
+    @Value("${games.updates.senderThreads:4}")
+    private int senderThreads;
+
+    // polls go to the store itself, a cached copy wouldn't show guesses made through other nodes
+    @Bean(destroyMethod = "close")
+    public GameUpdates gameUpdates(@Qualifier("gameInfoBackend") GameInfoService backend,
+                                   ObjectMapper objectMapper,
+                                   MetricRegistry metricRegistry) {
+        return new GameUpdates(backend, objectMapper.writer(), bufferSize, timeout, pollInterval, senderThreads, metricRegistry);
+    }
+}
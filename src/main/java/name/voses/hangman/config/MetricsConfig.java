@@ -0,0 +1,73 @@
+package name.voses.hangman.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Slf4jReporter;
+import com.codahale.metrics.Timer;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import name.voses.hangman.metrics.HdrHistogramReservoir;
+import name.voses.hangman.metrics.TimedBeanPostProcessor;
+
+@Configuration
+public class MetricsConfig {
+    // Bound as a Duration, so "0", "0s" and "0ms" all turn the reporter off
+    static class LogReporterEnabled implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            return !Binder.get(context.getEnvironment())
+                          .bind("metrics.log-reporter.interval", Duration.class)
+                          .orElse(Duration.ofMinutes(1))
+                          .isZero();
+        }
+    }
+
+    // percentiles are over every call in the last one to two windows, rather than the decaying
+    // sample timers default to, which rarely holds on to the tail
+    @Value("${metrics.window:1m}")
+    private Duration window;
+
+    @Value("${metrics.logReporter.interval:1m}")
+    private Duration logReporterInterval;
+
+    @Bean
+    public MetricRegistry metricRegistry() {
+        return new MetricRegistry();
+    }
+
+    @Bean
+    public MetricRegistry.MetricSupplier<Timer> timers() {
+        long windowMillis = window.toMillis();
+        return () -> new Timer(new HdrHistogramReservoir(windowMillis, TimeUnit.MILLISECONDS));
+    }
+
+    @Bean
+    public static TimedBeanPostProcessor timedBeanPostProcessor(ObjectProvider<MetricRegistry> metricRegistry,
+                                                                ObjectProvider<MetricRegistry.MetricSupplier<Timer>> timers) {
+        return new TimedBeanPostProcessor(metricRegistry, timers);
+    }
+
+    @Bean(destroyMethod = "stop")
+    @Conditional(LogReporterEnabled.class)
+    public Slf4jReporter metricsLogReporter(MetricRegistry metricRegistry) {
+        Slf4jReporter reporter = Slf4jReporter.forRegistry(metricRegistry)
+                                              .outputTo(LoggerFactory.getLogger("metrics"))
+                                              .convertRatesTo(TimeUnit.SECONDS)
+                                              .convertDurationsTo(TimeUnit.MILLISECONDS)
+                                              .build();
+        reporter.start(logReporterInterval.toMillis(), TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+}
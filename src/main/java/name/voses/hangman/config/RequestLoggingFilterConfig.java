@@ -1,19 +1,36 @@
 package name.voses.hangman.config;
 
+import com.codahale.metrics.MetricRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.filter.CommonsRequestLoggingFilter;
+
+import name.voses.hangman.logging.EventLog;
+import name.voses.hangman.logging.RequestLogFilter;
 
 @Configuration
+@ConditionalOnProperty(name = "games.requestLog.enabled", havingValue = "true", matchIfMissing = true)
 public class RequestLoggingFilterConfig {
+    @Value("${games.requestLog.rules:}")
+    private String rules;
+
+    @Value("${games.requestLog.sampleRate:0.01}")
+    private double sampleRate;
+
+    @Value("${games.requestLog.errorSampleRate:1.0}")
+    private double errorSampleRate;
+
+    @Value("${games.requestLog.maxPayloadBytes:1024}")
+    private int maxPayloadBytes;
+
+    @Value("${games.requestLog.includeHeaders:false}")
+    private boolean includeHeaders;
+
     @Bean
-    public CommonsRequestLoggingFilter logFilter() {
-        CommonsRequestLoggingFilter filter = new CommonsRequestLoggingFilter();
-        filter.setIncludeQueryString(true);
-        filter.setIncludePayload(true);
-        filter.setMaxPayloadLength(10000);
-        filter.setIncludeHeaders(true);
-        filter.setAfterMessagePrefix("REQUEST DATA : ");
-        return filter;
+    public RequestLogFilter logFilter(EventLog eventLog, MetricRegistry metricRegistry) {
+        return new RequestLogFilter(eventLog, RequestLogFilter.Rule.parse(rules), sampleRate, errorSampleRate,
+                                    maxPayloadBytes, includeHeaders, metricRegistry);
     }
-}
\ No newline at end of file
+}
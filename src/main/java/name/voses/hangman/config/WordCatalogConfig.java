@@ -0,0 +1,69 @@
+package name.voses.hangman.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import name.voses.hangman.logging.EventLog;
+import name.voses.hangman.resources.WordCatalog;
+
+// Compiles the words games are played with, from games.possibleWords and (optionally) a
+// games.wordListFile with one word per line.
+@Configuration
+@ConfigurationProperties(prefix = "games")
+public class WordCatalogConfig {
+    private static Logger LOG = LoggerFactory.getLogger(WordCatalogConfig.class);
+
+    // TODO: it's unclear if there's a way to do this sort of loading of a list
+    //       config var, so instead currently using @ConfigurationProperties
+    private List<String> possibleWords = new ArrayList<>();
+    public List<String> getPossibleWords() { return this.possibleWords; }
+
+    private String wordListFile;
+    public String getWordListFile() { return this.wordListFile; }
+    public void setWordListFile(String wordListFile) { this.wordListFile = wordListFile; }
+
+    @Bean
+    public WordCatalog wordCatalog() throws IOException {
+        long startNanos = System.nanoTime();
+
+        List<String> words = new ArrayList<>(possibleWords);
+        if (wordListFile != null && !wordListFile.isBlank()) {
+            try (Stream<String> lines = Files.lines(Path.of(wordListFile), StandardCharsets.UTF_8)) {
+                words.addAll(lines.filter((line) -> !line.startsWith("#"))
+                                  .collect(Collectors.toList()));
+            }
+        }
+
+        WordCatalog catalog = WordCatalog.compile(words);
+        if (catalog.size() == 0) {
+            throw new IllegalStateException("No words configured, set games.possibleWords or games.wordListFile");
+        }
+
+        logJSON(Map.of("action", "wordCatalogLoaded",
+                       "wordListFile", wordListFile == null ? "" : wordListFile,
+                       "words", catalog.size(),
+                       "loadMillis", (System.nanoTime() - startNanos) / 1_000_000,
+                       "heapBytes", catalog.estimatedHeapBytes()));
+
+        return catalog;
+    }
+
+    private static void logJSON(Map<?, ?> message) throws JsonProcessingException {
+        LOG.info(EventLog.writer().writeValueAsString(message));
+    }
+}
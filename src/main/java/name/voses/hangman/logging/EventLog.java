@@ -0,0 +1,204 @@
+package name.voses.hangman.logging;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Structured (JSON) events, written as one INFO line each through the logger they were
+// logged against, but serialized and written by a background thread.
+//
+// Events go into a fixed size ring buffer (two parallel arrays, so handing one off allocates
+// nothing). The writer thread drains everything queued in one go and writes it as a batch. When
+// the buffer is full the policy decides: DROP the event (counted) or BLOCK the caller for up to
+// blockTimeout, after which it's dropped anyway.
+//
+// Events must not be mutated after they're logged, they're serialized later.
+public class EventLog implements Closeable {
+    private static Logger LOG = LoggerFactory.getLogger(EventLog.class);
+
+    private static final ObjectWriter WRITER = new ObjectMapper().writer();
+
+    public enum FullPolicy {
+        DROP,
+        BLOCK
+    }
+
+    private final Logger[] loggers;
+    private final Map<?, ?>[] events;
+    private int head;
+    private int count;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final FullPolicy fullPolicy;
+    private final long blockTimeoutNanos;
+    private final int batchSize;
+    private final BiConsumer<Logger, String> sink;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter blocked;
+
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // shared, thread safe writer for anything else serializing log messages
+    public static ObjectWriter writer() {
+        return WRITER;
+    }
+
+    public EventLog(int capacity, FullPolicy fullPolicy, Duration blockTimeout, int batchSize, MetricRegistry metricRegistry) {
+        this(capacity, fullPolicy, blockTimeout, batchSize, metricRegistry, Logger::info);
+    }
+
+    EventLog(int capacity, FullPolicy fullPolicy, Duration blockTimeout, int batchSize, MetricRegistry metricRegistry,
+             BiConsumer<Logger, String> sink) {
+        this.loggers = new Logger[capacity];
+        this.events = new Map<?, ?>[capacity];
+        this.fullPolicy = fullPolicy;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.batchSize = batchSize;
+        this.sink = sink;
+
+        this.written = metricRegistry.counter(MetricRegistry.name(EventLog.class, "written"));
+        this.dropped = metricRegistry.counter(MetricRegistry.name(EventLog.class, "dropped"));
+        this.blocked = metricRegistry.counter(MetricRegistry.name(EventLog.class, "blocked"));
+        metricRegistry.gauge(MetricRegistry.name(EventLog.class, "queued"), () -> (Gauge<Integer>) this::queued);
+
+        this.writerThread = new Thread(this::writeEvents, "event-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public void log(Logger logger, Map<?, ?> event) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (count == events.length && !waitForRoom()) {
+                dropped.inc();
+                return;
+            }
+
+            int tail = (head + count) % events.length;
+            loggers[tail] = logger;
+            events[tail] = event;
+            count++;
+            // the writer only waits when the buffer is empty
+            if (count == 1) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stops the writer once everything already queued is written
+    @Override
+    public void close() {
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // must hold the lock, false if there's still no room
+    private boolean waitForRoom() {
+        if (fullPolicy == FullPolicy.DROP || !running) {
+            return false;
+        }
+
+        blocked.inc();
+        long remainingNanos = blockTimeoutNanos;
+        try {
+            while (count == events.length) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    private void writeEvents() {
+        Logger[] batchLoggers = new Logger[batchSize];
+        Map<?, ?>[] batchEvents = new Map<?, ?>[batchSize];
+
+        while (true) {
+            int batchCount;
+            lock.lock();
+            try {
+                while (count == 0) {
+                    if (!running) {
+                        return;
+                    }
+                    notEmpty.awaitUninterruptibly();
+                }
+
+                batchCount = Math.min(count, batchSize);
+                for (int i = 0; i < batchCount; i++) {
+                    batchLoggers[i] = loggers[head];
+                    batchEvents[i] = events[head];
+                    loggers[head] = null;
+                    events[head] = null;
+                    head = (head + 1) % events.length;
+                }
+                count -= batchCount;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            for (int i = 0; i < batchCount; i++) {
+                try {
+                    sink.accept(batchLoggers[i], WRITER.writeValueAsString(batchEvents[i]));
+                    written.inc();
+                } catch (JsonProcessingException | RuntimeException e) {
+                    LOG.warn("Unable to write event {}", batchEvents[i], e);
+                }
+                batchLoggers[i] = null;
+                batchEvents[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package name.voses.hangman.logging;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.WebUtils;
+
+// Logs a sample of requests as events through the EventLog.
+//
+// Whether a successful request is logged is decided up front, from the sample rate of the first
+// rule matching it (or the default rate), so only sampled requests have their payload copied,
+// and then only up to maxPayloadBytes. Failed requests (status >= 400 or an exception) are
+// logged at errorSampleRate whether or not they were sampled, but only the sampled ones carry
+// their payload and headers.
+//
+// Async requests are logged once the async dispatch completes, so the status and duration are
+// the final ones.
+public class RequestLogFilter extends OncePerRequestFilter {
+    private static Logger LOG = LoggerFactory.getLogger(RequestLogFilter.class);
+
+    private static final String SAMPLED_ATTRIBUTE = RequestLogFilter.class.getName() + ".sampled";
+    private static final String STARTED_ATTRIBUTE = RequestLogFilter.class.getName() + ".started";
+
+    // Sample rate for requests with a matching method ("*" for any) and Ant style path pattern
+    public static class Rule {
+        private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+        private final String method;
+        private final String pathPattern;
+        private final double sampleRate;
+
+        public Rule(String method, String pathPattern, double sampleRate) {
+            this.method = method;
+            this.pathPattern = pathPattern;
+            this.sampleRate = sampleRate;
+        }
+
+        // "METHOD /path/pattern=rate", separated by commas
+        public static List<Rule> parse(String rules) {
+            List<Rule> parsed = new ArrayList<>();
+            for (String rule : rules.split(",")) {
+                if (rule.isBlank()) {
+                    continue;
+                }
+
+                String[] methodAndRest = rule.trim().split("\\s+", 2);
+                int equals = methodAndRest.length == 2 ? methodAndRest[1].lastIndexOf('=') : -1;
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Request log rule must be METHOD /path=rate: " + rule);
+                }
+                parsed.add(new Rule(methodAndRest[0].toUpperCase(),
+                                    methodAndRest[1].substring(0, equals).trim(),
+                                    Double.parseDouble(methodAndRest[1].substring(equals + 1).trim())));
+            }
+            return parsed;
+        }
+
+        private boolean matches(HttpServletRequest request) {
+            return ("*".equals(method) || method.equals(request.getMethod()))
+                && PATH_MATCHER.match(pathPattern, request.getRequestURI());
+        }
+    }
+
+    private final EventLog eventLog;
+    private final List<Rule> rules;
+    private final double defaultSampleRate;
+    private final double errorSampleRate;
+    private final int maxPayloadBytes;
+    private final boolean includeHeaders;
+
+    private final Counter logged;
+
+    public RequestLogFilter(EventLog eventLog, List<Rule> rules, double defaultSampleRate, double errorSampleRate,
+                            int maxPayloadBytes, boolean includeHeaders, MetricRegistry metricRegistry) {
+        this.eventLog = eventLog;
+        this.rules = rules;
+        this.defaultSampleRate = defaultSampleRate;
+        this.errorSampleRate = errorSampleRate;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.includeHeaders = includeHeaders;
+
+        this.logged = metricRegistry.counter(MetricRegistry.name(RequestLogFilter.class, "logged"));
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpServletRequest requestToUse = request;
+        if (!isAsyncDispatch(request)) {
+            boolean sampled = ThreadLocalRandom.current().nextDouble() < sampleRateFor(request);
+            request.setAttribute(SAMPLED_ATTRIBUTE, sampled);
+            request.setAttribute(STARTED_ATTRIBUTE, System.nanoTime());
+            if (sampled && maxPayloadBytes > 0) {
+                requestToUse = new ContentCachingRequestWrapper(request, maxPayloadBytes);
+            }
+        }
+
+        boolean failed = true;
+        try {
+            filterChain.doFilter(requestToUse, response);
+            failed = false;
+        } finally {
+            if (!isAsyncStarted(requestToUse)) {
+                int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+                logRequest(requestToUse, status);
+            }
+        }
+    }
+
+    private double sampleRateFor(HttpServletRequest request) {
+        for (Rule rule : rules) {
+            if (rule.matches(request)) {
+                return rule.sampleRate;
+            }
+        }
+        return defaultSampleRate;
+    }
+
+    private void logRequest(HttpServletRequest request, int status) {
+        boolean sampled = Boolean.TRUE.equals(request.getAttribute(SAMPLED_ATTRIBUTE));
+        Long started = (Long) request.getAttribute(STARTED_ATTRIBUTE);
+        if (!sampled && (status < 400 || ThreadLocalRandom.current().nextDouble() >= errorSampleRate)) {
+            return;
+        }
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("action", "request");
+        event.put("method", request.getMethod());
+        event.put("uri", request.getRequestURI());
+        if (request.getQueryString() != null) {
+            event.put("query", request.getQueryString());
+        }
+        event.put("status", status);
+        if (started != null) {
+            event.put("durationMicros", (System.nanoTime() - started) / 1000);
+        }
+
+        if (sampled) {
+            if (includeHeaders) {
+                event.put("headers", headers(request));
+            }
+            String payload = payload(request);
+            if (payload != null) {
+                event.put("payload", payload);
+            }
+        }
+
+        eventLog.log(LOG, event);
+        logged.inc();
+    }
+
+    private Map<String, String> headers(HttpServletRequest request) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!HttpHeaders.AUTHORIZATION.equalsIgnoreCase(name) && !HttpHeaders.COOKIE.equalsIgnoreCase(name)) {
+                headers.put(name, request.getHeader(name));
+            }
+        }
+        return headers;
+    }
+
+    private String payload(HttpServletRequest request) {
+        ContentCachingRequestWrapper wrapper = WebUtils.getNativeRequest(request, ContentCachingRequestWrapper.class);
+        if (wrapper == null) {
+            return null;
+        }
+
+        byte[] content = wrapper.getContentAsByteArray();
+        if (content.length == 0) {
+            return null;
+        }
+
+        Charset charset = wrapper.getCharacterEncoding() == null
+            ? StandardCharsets.UTF_8
+            : Charset.forName(wrapper.getCharacterEncoding());
+        return new String(content, 0, Math.min(content.length, maxPayloadBytes), charset);
+    }
+}
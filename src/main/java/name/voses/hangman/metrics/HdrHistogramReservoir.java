@@ -0,0 +1,128 @@
+package name.voses.hangman.metrics;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+// A reservoir backed by HdrHistogram: every value is counted (to 2 significant digits) in a
+// fixed set of buckets, so memory and snapshot cost stay the same however many calls there are,
+// and the tail is never sampled away.
+//
+// Updates go to a Recorder, which takes them without locking. Snapshots cover the current window
+// and the one before it, so they hold between one and two windows of values. Windows only roll
+// over when a snapshot is taken, which the log reporter does every metrics.logReporter.interval.
+public class HdrHistogramReservoir implements Reservoir {
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final long windowNanos;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    // guarded by this
+    private Histogram interval;
+    private Histogram previous = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram current = new Histogram(SIGNIFICANT_DIGITS);
+    private long windowStart = System.nanoTime();
+
+    public HdrHistogramReservoir(long window, TimeUnit unit) {
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        if (value >= 0) {
+            recorder.recordValue(value);
+        }
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        current.add(interval);
+
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos) {
+            previous = current;
+            current = new Histogram(SIGNIFICANT_DIGITS);
+            windowStart = now;
+        }
+
+        Histogram values = previous.copy();
+        values.add(current);
+        return new HdrSnapshot(values);
+    }
+
+    private static class HdrSnapshot extends Snapshot {
+        private final Histogram histogram;
+
+        private HdrSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        // one entry per value counted, only worth asking for on small windows
+        @Override
+        public long[] getValues() {
+            long[] values = new long[size()];
+            int i = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                long equivalent = histogram.highestEquivalentValue(value.getValueIteratedTo());
+                for (long n = 0; n < value.getCountAtValueIteratedTo() && i < values.length; n++) {
+                    values[i++] = equivalent;
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
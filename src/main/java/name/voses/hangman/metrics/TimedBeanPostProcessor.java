@@ -0,0 +1,121 @@
+package name.voses.hangman.metrics;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Timed;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+
+// Times the @Timed methods of beans, without needing the aspectj weaving metrics-aspectj does.
+//
+// A method is timed if it's annotated, or declared by a class or interface that is. A class
+// that's annotated also has the methods it inherits from its interfaces timed (so the stores
+// are timed, including GameInfoService's default methods, but not the layers wrapped around
+// them). Timers are named after the bean's class and the method, unless the annotation names
+// them. Methods returning a CompletionStage are timed until it completes.
+public class TimedBeanPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<MetricRegistry> metricRegistry;
+    private final ObjectProvider<MetricRegistry.MetricSupplier<Timer>> timers;
+
+    public TimedBeanPostProcessor(ObjectProvider<MetricRegistry> metricRegistry,
+                                  ObjectProvider<MetricRegistry.MetricSupplier<Timer>> timers) {
+        this.metricRegistry = metricRegistry;
+        this.timers = timers;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // already timed, when one bean is handed out as another (the @Primary GameInfoService)
+        if (AopUtils.isAopProxy(bean)) {
+            return bean;
+        }
+
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        Map<Method, String> timerNames = timerNames(targetClass);
+        if (timerNames.isEmpty()) {
+            return bean;
+        }
+
+        Map<Method, Timer> methodTimers = new HashMap<>();
+        timerNames.forEach((method, name) -> methodTimers.put(method, metricRegistry.getObject().timer(name, timers.getObject())));
+
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) (invocation) -> {
+            Timer timer = methodTimers.get(ClassUtils.getMostSpecificMethod(invocation.getMethod(), targetClass));
+            if (timer == null) {
+                return invocation.proceed();
+            }
+
+            Timer.Context context = timer.time();
+            boolean completesLater = false;
+            try {
+                Object result = invocation.proceed();
+                if (result instanceof CompletionStage) {
+                    completesLater = true;
+                    ((CompletionStage<?>) result).whenComplete((value, e) -> context.stop());
+                }
+                return result;
+            } finally {
+                if (!completesLater) {
+                    context.stop();
+                }
+            }
+        });
+        return proxyFactory.getProxy(ClassUtils.getDefaultClassLoader());
+    }
+
+    static Map<Method, String> timerNames(Class<?> targetClass) {
+        Map<Method, String> timerNames = new HashMap<>();
+        Timed classTimed = null;
+        for (Class<?> type = targetClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            addTimedMethods(type, null, targetClass, timerNames);
+            if (classTimed == null) {
+                classTimed = AnnotationUtils.getAnnotation(type, Timed.class);
+            }
+        }
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+            addTimedMethods(type, classTimed, targetClass, timerNames);
+        }
+        return timerNames;
+    }
+
+    private static void addTimedMethods(Class<?> type, Timed inheritedTimed, Class<?> targetClass, Map<Method, String> timerNames) {
+        Timed typeTimed = AnnotationUtils.getAnnotation(type, Timed.class);
+        if (typeTimed == null) {
+            typeTimed = inheritedTimed;
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+
+            Timed timed = AnnotationUtils.getAnnotation(method, Timed.class);
+            if (timed == null && typeTimed == null) {
+                continue;
+            }
+
+            Method specificMethod = ClassUtils.getMostSpecificMethod(method, targetClass);
+            timerNames.computeIfAbsent(specificMethod, (m) -> timerName(targetClass, method, timed));
+        }
+    }
+
+    private static String timerName(Class<?> targetClass, Method method, Timed timed) {
+        if (timed == null || timed.name().isEmpty()) {
+            return MetricRegistry.name(targetClass, method.getName());
+        }
+        return timed.absolute() ? timed.name() : MetricRegistry.name(targetClass, timed.name());
+    }
+}
@@ -0,0 +1,71 @@
+package name.voses.hangman.persistence;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Paces consumption of some capacity (DynamoDB capacity units) to a rate that adapts to being
+// throttled: it's halved on every throttle, then grows back by a tenth of the maximum every
+// second without one.
+//
+// Callers reserve what they expect to use up front, and settle up once they know what they
+// actually used, so the bucket can go into debt. Later callers are told to wait that debt out.
+// Callers don't wait longer than maxWait, so the debt is capped at what maxWait pays off: beyond
+// that, callers go ahead after maxWait without adding to it.
+class AdaptiveRateLimiter {
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double INCREASE_PER_SECOND = 0.1;
+    private static final double MINIMUM_RATE_FRACTION = 0.05;
+
+    private final double maxRate;
+    private final double burstSeconds;
+    private final double maxWaitSeconds;
+    private final LongSupplier nanoClock;
+
+    private double rate;
+    private double available;
+    private long lastRefillNanos;
+
+    AdaptiveRateLimiter(double maxRate, Duration burst, Duration maxWait, LongSupplier nanoClock) {
+        this.maxRate = maxRate;
+        this.burstSeconds = burst.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        this.maxWaitSeconds = maxWait.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.rate = maxRate;
+        this.available = maxRate * burstSeconds;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    // how long the caller should wait before going ahead, in nanoseconds, at most maxWait
+    synchronized long reserve(double units) {
+        refill();
+        available = Math.max(available - units, -rate * maxWaitSeconds);
+        return available >= 0 ? 0 : (long) (-available / rate * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // units used beyond what was reserved, negative to give back what wasn't used
+    synchronized void settle(double units) {
+        refill();
+        available = Math.max(Math.min(available - units, rate * burstSeconds), -rate * maxWaitSeconds);
+    }
+
+    synchronized void throttled() {
+        refill();
+        rate = Math.max(maxRate * MINIMUM_RATE_FRACTION, rate * DECREASE_FACTOR);
+        available = Math.max(Math.min(available, 0), -rate * maxWaitSeconds);
+    }
+
+    synchronized double rate() {
+        refill();
+        return rate;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        double elapsedSeconds = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        lastRefillNanos = now;
+
+        rate = Math.min(maxRate, rate + maxRate * INCREASE_PER_SECOND * elapsedSeconds);
+        available = Math.min(rate * burstSeconds, available + rate * elapsedSeconds);
+    }
+}
@@ -0,0 +1,54 @@
+package name.voses.hangman.persistence;
+
+import java.util.List;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.GuessOutcome;
+
+// The outcome of applying several guesses in order: the state of the game after all of them,
+// and what each one did (in the order they were given). A store that kept losing the race to
+// other guesses on the game can give up with a conflicted result, none of the guesses were
+// applied and the caller can try again.
+public class BatchGuessResult {
+    private static final BatchGuessResult NOT_FOUND = new BatchGuessResult(null, List.of(), false);
+    private static final BatchGuessResult CONFLICTED = new BatchGuessResult(null, List.of(), true);
+
+    private final Game game;
+    private final List<GuessOutcome> outcomes;
+    private final boolean conflicted;
+
+    public static BatchGuessResult notFound() {
+        return NOT_FOUND;
+    }
+
+    public static BatchGuessResult conflicted() {
+        return CONFLICTED;
+    }
+
+    public static BatchGuessResult of(Game game, List<GuessOutcome> outcomes) {
+        return new BatchGuessResult(game, outcomes, false);
+    }
+
+    private BatchGuessResult(Game game, List<GuessOutcome> outcomes, boolean conflicted) {
+        this.game = game;
+        this.outcomes = outcomes;
+        this.conflicted = conflicted;
+    }
+
+    // null when the game doesn't exist
+    public Game getGame() {
+        return this.game;
+    }
+
+    public List<GuessOutcome> getOutcomes() {
+        return this.outcomes;
+    }
+
+    public boolean isFound() {
+        return this.game != null;
+    }
+
+    public boolean isConflicted() {
+        return this.conflicted;
+    }
+}
@@ -0,0 +1,166 @@
+package name.voses.hangman.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+
+// Write-through cache in front of another GameInfoService. Games are cached when created and
+// refreshed from every guess result, so polling an active game doesn't leave the process.
+//
+// The cache is per process: guesses made through another node only show up here once the entry
+// expires, so the ttl bounds how stale a read can be in a multi-node deployment.
+public class CachingGameInfoService implements GameInfoService {
+    private final GameInfoService delegate;
+    private final GameCache cache;
+
+    public CachingGameInfoService(GameInfoService delegate, GameCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Game createGame(int maxWrongGuesses) {
+        Game game = delegate.createGame(maxWrongGuesses);
+        cache.put(game);
+        return game;
+    }
+
+    @Override
+    public List<Game> createGames(int count, int maxWrongGuesses) {
+        List<Game> games = delegate.createGames(count, maxWrongGuesses);
+        games.forEach(cache::put);
+        return games;
+    }
+
+    @Override
+    public Game storeGuess(Game game, String letter) {
+        Game updatedGame = delegate.storeGuess(game, letter);
+        cache.put(updatedGame);
+        return updatedGame;
+    }
+
+    @Override
+    public GuessResult guessLetter(String gameId, String letter) {
+        // Every ineligible reason is permanent (a letter stays guessed, a finished game stays
+        // finished), so even a stale cached state can answer those without a write.
+        Game cachedGame = cache.get(gameId);
+        if (cachedGame != null) {
+            GuessIneligibleReason ineligibleReason = cachedGame.ineligibleToGuessReason(letter);
+            if (ineligibleReason != null) {
+                return GuessResult.ineligible(cachedGame, ineligibleReason);
+            }
+        }
+
+        GuessResult result = delegate.guessLetter(gameId, letter);
+        if (result.isFound()) {
+            cache.put(result.getGame());
+        } else {
+            cache.invalidate(gameId);
+        }
+        return result;
+    }
+
+    @Override
+    public BatchGuessResult guessLetters(String gameId, List<String> letters) {
+        BatchGuessResult result = delegate.guessLetters(gameId, letters);
+        if (result.isFound()) {
+            cache.put(result.getGame());
+        } else {
+            cache.invalidate(gameId);
+        }
+        return result;
+    }
+
+    @Override
+    public Game findGameWithGuesses(String gameId) {
+        Game game = cache.get(gameId);
+        if (game != null) {
+            return game;
+        }
+
+        game = delegate.findGameWithGuesses(gameId);
+        if (game != null) {
+            cache.put(game);
+        }
+        return game;
+    }
+
+    @Override
+    public Map<String, Game> findGamesWithGuesses(Collection<String> gameIds) {
+        Map<String, Game> games = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String gameId : gameIds) {
+            Game game = cache.get(gameId);
+            if (game != null) {
+                games.put(gameId, game);
+            } else {
+                missing.add(gameId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return games;
+        }
+
+        Map<String, Game> loaded = delegate.findGamesWithGuesses(missing);
+        loaded.values().forEach(cache::put);
+
+        // keep the order asked for
+        Map<String, Game> ordered = new LinkedHashMap<>();
+        for (String gameId : gameIds) {
+            Game game = games.containsKey(gameId) ? games.get(gameId) : loaded.get(gameId);
+            if (game != null) {
+                ordered.put(gameId, game);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public CompletableFuture<Game> createGameAsync(int maxWrongGuesses) {
+        return delegate.createGameAsync(maxWrongGuesses).thenApply((game) -> {
+            cache.put(game);
+            return game;
+        });
+    }
+
+    @Override
+    public CompletableFuture<GuessResult> guessLetterAsync(String gameId, String letter) {
+        Game cachedGame = cache.get(gameId);
+        if (cachedGame != null) {
+            GuessIneligibleReason ineligibleReason = cachedGame.ineligibleToGuessReason(letter);
+            if (ineligibleReason != null) {
+                return CompletableFuture.completedFuture(GuessResult.ineligible(cachedGame, ineligibleReason));
+            }
+        }
+
+        return delegate.guessLetterAsync(gameId, letter).thenApply((result) -> {
+            if (result.isFound()) {
+                cache.put(result.getGame());
+            } else {
+                cache.invalidate(gameId);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Game> findGameWithGuessesAsync(String gameId) {
+        Game game = cache.get(gameId);
+        if (game != null) {
+            return CompletableFuture.completedFuture(game);
+        }
+
+        return delegate.findGameWithGuessesAsync(gameId).thenApply((loadedGame) -> {
+            if (loadedGame != null) {
+                cache.put(loadedGame);
+            }
+            return loadedGame;
+        });
+    }
+}
@@ -0,0 +1,282 @@
+package name.voses.hangman.persistence;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.GuessOutcome;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+
+// Group commit for guesses: guesses for the same game arriving close together are applied with
+// a single guessLetters call (one read and one UpdateItem against DynamoDB) instead of racing
+// each other as conditional writes, which on a game many players share mostly fail and retry.
+//
+// The first guess for a game opens a batch and the batch is applied once the window has passed.
+// Guesses arriving while a batch is being applied queue up in the next one, which is applied as
+// soon as the current one finishes, so at most one write per game is in flight from this node.
+// Every caller gets the outcome of its own letter along with the state after the whole batch.
+// A batch holding a single guess goes through guessLetter, the cheaper call for one letter.
+//
+// A single timer thread waits out the windows and only hands batches over; the writes, which
+// block on the store, run on the appliers, so `threads` bounds how many games are written at once.
+//
+// Closing fails the guesses still waiting for a batch and any made afterwards, rather than leaving
+// their callers waiting on a timer that will never fire.
+public class CoalescingGameInfoService implements GameInfoService, Closeable {
+    private static class PendingGuess {
+        private final String letter;
+        private final long queuedNanos = System.nanoTime();
+        private final CompletableFuture<GuessResult> result = new CompletableFuture<>();
+
+        private PendingGuess(String letter) {
+            this.letter = letter;
+        }
+    }
+
+    // guarded by the lanes map entry
+    private static class Lane {
+        private List<PendingGuess> open;
+        // a batch is scheduled or being applied
+        private boolean flushing;
+    }
+
+    private final GameInfoService delegate;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService appliers;
+
+    private final Histogram batchSize;
+    private final Timer queueing;
+
+    private volatile boolean closed;
+
+    public CoalescingGameInfoService(GameInfoService delegate, Duration window, int maxBatchSize, int threads,
+                                     MetricRegistry metricRegistry, MetricRegistry.MetricSupplier<Timer> timers) {
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+
+        this.timer = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "guess-coalescer-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.appliers = Executors.newFixedThreadPool(threads, (runnable) -> {
+            Thread thread = new Thread(runnable, "guess-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.batchSize = metricRegistry.histogram(MetricRegistry.name(CoalescingGameInfoService.class, "batchSize"));
+        this.queueing = metricRegistry.timer(MetricRegistry.name(CoalescingGameInfoService.class, "queueing"), timers);
+    }
+
+    @Override
+    public Game createGame(int maxWrongGuesses) {
+        return delegate.createGame(maxWrongGuesses);
+    }
+
+    @Override
+    public List<Game> createGames(int count, int maxWrongGuesses) {
+        return delegate.createGames(count, maxWrongGuesses);
+    }
+
+    // Only used without conditional guesses, where the caller reloads the game afterwards anyway
+    @Override
+    public Game storeGuess(Game game, String letter) {
+        return delegate.storeGuess(game, letter);
+    }
+
+    @Override
+    public GuessResult guessLetter(String gameId, String letter) {
+        try {
+            return guessLetterAsync(gameId, letter).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Already a single write for all of them
+    @Override
+    public BatchGuessResult guessLetters(String gameId, List<String> letters) {
+        return delegate.guessLetters(gameId, letters);
+    }
+
+    @Override
+    public Game findGameWithGuesses(String gameId) {
+        return delegate.findGameWithGuesses(gameId);
+    }
+
+    @Override
+    public Map<String, Game> findGamesWithGuesses(Collection<String> gameIds) {
+        return delegate.findGamesWithGuesses(gameIds);
+    }
+
+    @Override
+    public CompletableFuture<Game> createGameAsync(int maxWrongGuesses) {
+        return delegate.createGameAsync(maxWrongGuesses);
+    }
+
+    @Override
+    public CompletableFuture<GuessResult> guessLetterAsync(String gameId, String letter) {
+        PendingGuess guess = new PendingGuess(letter);
+        boolean[] schedule = { false };
+        lanes.compute(gameId, (id, lane) -> {
+            // checked with the lane's entry held, so close() either drains the guess or it's refused here
+            if (closed) {
+                guess.result.completeExceptionally(shuttingDown());
+                return lane;
+            }
+            if (lane == null) {
+                lane = new Lane();
+            }
+            if (lane.open == null) {
+                lane.open = new ArrayList<>();
+            }
+            lane.open.add(guess);
+            if (!lane.flushing) {
+                lane.flushing = true;
+                schedule[0] = true;
+            }
+            return lane;
+        });
+
+        if (schedule[0]) {
+            try {
+                timer.schedule(() -> appliers.execute(() -> flush(gameId)), windowNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // closed since the guess was queued, and close() already failed it
+            }
+        }
+        return guess.result;
+    }
+
+    @Override
+    public CompletableFuture<Game> findGameWithGuessesAsync(String gameId) {
+        return delegate.findGameWithGuessesAsync(gameId);
+    }
+
+    private void flush(String gameId) {
+        List<PendingGuess> batch = take(gameId);
+        try {
+            apply(gameId, batch);
+        } catch (Throwable e) {
+            // an Error too, the lane has to move on either way
+            batch.forEach((guess) -> guess.result.completeExceptionally(e));
+        } finally {
+            // guesses that arrived while this batch was applied have waited long enough already
+            boolean more = lanes.computeIfPresent(gameId, (id, lane) -> {
+                if (lane.open == null) {
+                    return null;
+                }
+                return lane;
+            }) != null;
+            if (more && !closed) {
+                appliers.execute(() -> flush(gameId));
+            }
+        }
+    }
+
+    // empty when close() drained the lane first
+    private List<PendingGuess> take(String gameId) {
+        List<List<PendingGuess>> taken = new ArrayList<>(1);
+        taken.add(List.of());
+        lanes.computeIfPresent(gameId, (id, lane) -> {
+            if (lane.open.size() <= maxBatchSize) {
+                taken.set(0, lane.open);
+                lane.open = null;
+            } else {
+                taken.set(0, new ArrayList<>(lane.open.subList(0, maxBatchSize)));
+                lane.open = new ArrayList<>(lane.open.subList(maxBatchSize, lane.open.size()));
+            }
+            return lane;
+        });
+        return taken.get(0);
+    }
+
+    private void apply(String gameId, List<PendingGuess> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        batch.forEach((guess) -> queueing.update(now - guess.queuedNanos, TimeUnit.NANOSECONDS));
+        batchSize.update(batch.size());
+
+        if (batch.size() == 1) {
+            PendingGuess guess = batch.get(0);
+            guess.result.complete(delegate.guessLetter(gameId, guess.letter));
+            return;
+        }
+
+        List<String> letters = new ArrayList<>(batch.size());
+        batch.forEach((guess) -> letters.add(guess.letter));
+        BatchGuessResult result = delegate.guessLetters(gameId, letters);
+        if (result.isConflicted()) {
+            // other nodes kept writing the game, fall back to a conditional write per guess
+            batch.forEach((guess) -> guess.result.complete(delegate.guessLetter(gameId, guess.letter)));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            GuessResult guessResult = result.isFound() ? guessResult(result.getGame(), result.getOutcomes().get(i))
+                                                       : GuessResult.notFound();
+            batch.get(i).result.complete(guessResult);
+        }
+    }
+
+    private static GuessResult guessResult(Game game, GuessOutcome outcome) {
+        switch (outcome) {
+            case REPEAT:
+                return GuessResult.ineligible(game, GuessIneligibleReason.REPEAT);
+            case INELIGIBLE:
+                // the game was over by then, and stays over
+                return GuessResult.ineligible(game, game.getPlayState().isGameWon() ? GuessIneligibleReason.ALREADY_WON
+                                                                                    : GuessIneligibleReason.TOO_MANY_WRONG_GUESSES);
+            default:
+                return GuessResult.recorded(game);
+        }
+    }
+
+    private static IllegalStateException shuttingDown() {
+        return new IllegalStateException("Shutting down, the guess was not applied");
+    }
+
+    // Batches already being applied are left to finish (or fail on the interrupt)
+    @Override
+    public void close() {
+        closed = true;
+        for (String gameId : lanes.keySet()) {
+            lanes.computeIfPresent(gameId, (id, lane) -> {
+                if (lane.open != null) {
+                    lane.open.forEach((guess) -> guess.result.completeExceptionally(shuttingDown()));
+                }
+                return null;
+            });
+        }
+
+        timer.shutdownNow();
+        appliers.shutdownNow();
+    }
+}
@@ -0,0 +1,251 @@
+package name.voses.hangman.persistence;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+// Asks DynamoDB for the capacity every item call consumed and meters it, so its rates compare
+// directly with the table's capacity, along with throttles, split into reads and writes.
+//
+// With limits set, calls are also paced so the table's capacity isn't exceeded, rather than
+// being throttled and burning retries: before each attempt the capacity a call of its kind
+// usually consumes is reserved, and the caller waits (up to maxWait) if the reservations have
+// run ahead of the rate. The rate backs off on throttles and recovers while there are none.
+public class DynamoDBCapacity extends RequestHandler2 {
+    private static final HandlerContextKey<Double> RESERVED = new HandlerContextKey<>("reservedCapacity");
+
+    private static class Usage {
+        private final Meter consumed;
+        private final Counter throttles;
+        private final AdaptiveRateLimiter limiter;
+
+        // fractions of a unit consumed but not yet marked, guarded by this
+        private double unmarked;
+
+        private Usage(MetricRegistry metricRegistry, String kind, AdaptiveRateLimiter limiter) {
+            this.consumed = metricRegistry.meter(MetricRegistry.name(DynamoDBCapacity.class, "consumed", kind));
+            this.throttles = metricRegistry.counter(MetricRegistry.name(DynamoDBCapacity.class, "throttles", kind));
+            this.limiter = limiter;
+            if (limiter != null) {
+                metricRegistry.gauge(MetricRegistry.name(DynamoDBCapacity.class, "limit", kind), () -> (Gauge<Double>) limiter::rate);
+            }
+        }
+
+        // meters only count whole units, so eventually consistent reads (half a unit) add up first
+        private synchronized void consumed(double units) {
+            unmarked += units;
+            long whole = (long) unmarked;
+            unmarked -= whole;
+            if (whole > 0) {
+                consumed.mark(whole);
+            }
+        }
+    }
+
+    private final Usage reads;
+    private final Usage writes;
+    private final Timer waits;
+
+    // recent capacity consumed by each kind of call, what's reserved for the next one
+    private final Map<Class<?>, Double> estimates = new ConcurrentHashMap<>();
+
+    // 0 capacity for no limit on that kind
+    public DynamoDBCapacity(MetricRegistry metricRegistry, double readCapacity, double writeCapacity,
+                            Duration burst, Duration maxWait) {
+        this.reads = new Usage(metricRegistry, "read", limiter(readCapacity, burst, maxWait));
+        this.writes = new Usage(metricRegistry, "write", limiter(writeCapacity, burst, maxWait));
+        this.waits = metricRegistry.timer(MetricRegistry.name(DynamoDBCapacity.class, "waits"));
+    }
+
+    @Override
+    public AmazonWebServiceRequest beforeExecution(AmazonWebServiceRequest request) {
+        if (request instanceof GetItemRequest && ((GetItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((GetItemRequest) request).setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof PutItemRequest && ((PutItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((PutItemRequest) request).setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof UpdateItemRequest && ((UpdateItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((UpdateItemRequest) request).setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof DeleteItemRequest && ((DeleteItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((DeleteItemRequest) request).setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof BatchGetItemRequest && ((BatchGetItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((BatchGetItemRequest) request).setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof BatchWriteItemRequest && ((BatchWriteItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((BatchWriteItemRequest) request).setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof QueryRequest && ((QueryRequest) request).getReturnConsumedCapacity() == null) {
+            ((QueryRequest) request).setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof ScanRequest && ((ScanRequest) request).getReturnConsumedCapacity() == null) {
+            ((ScanRequest) request).setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        }
+        return request;
+    }
+
+    @Override
+    public void beforeAttempt(HandlerBeforeAttemptContext context) {
+        Request<?> request = context.getRequest();
+        Usage usage = usageFor(request.getOriginalRequest());
+        if (usage == null || usage.limiter == null) {
+            return;
+        }
+
+        double estimate = estimates.getOrDefault(request.getOriginalRequest().getClass(), 1.0);
+        request.addHandlerContext(RESERVED, estimate);
+        long waitNanos = usage.limiter.reserve(estimate);
+        if (waitNanos > 0) {
+            waits.update(waitNanos, TimeUnit.NANOSECONDS);
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void afterAttempt(HandlerAfterAttemptContext context) {
+        if (context.getException() == null) {
+            return;
+        }
+
+        Request<?> request = context.getRequest();
+        Usage usage = usageFor(request.getOriginalRequest());
+        if (usage == null) {
+            return;
+        }
+
+        if (context.getException() instanceof AmazonServiceException
+            && RetryUtils.isThrottlingException((AmazonServiceException) context.getException())) {
+            usage.throttles.inc();
+            if (usage.limiter != null) {
+                usage.limiter.throttled();
+            }
+        }
+
+        // A write refused by its condition is still charged (for the item's size, which the
+        // response doesn't say, so take what calls like it usually consume, at least a unit).
+        // Anything else failed before consuming anything.
+        if (context.getException() instanceof ConditionalCheckFailedException) {
+            double charged = Math.max(1.0, estimates.getOrDefault(request.getOriginalRequest().getClass(), 1.0));
+            usage.consumed(charged);
+            if (usage.limiter != null) {
+                usage.limiter.settle(charged - reserved(request));
+            }
+        } else if (usage.limiter != null) {
+            usage.limiter.settle(-reserved(request));
+        }
+        if (usage.limiter != null) {
+            request.addHandlerContext(RESERVED, 0.0);
+        }
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        Usage usage = usageFor(request.getOriginalRequest());
+        if (usage == null || response == null) {
+            return;
+        }
+
+        double consumed = consumedCapacity(response.getAwsResponse());
+        usage.consumed(consumed);
+        if (consumed > 0) {
+            estimates.merge(request.getOriginalRequest().getClass(), consumed, (previous, latest) -> previous * 0.9 + latest * 0.1);
+        }
+        if (usage.limiter != null) {
+            usage.limiter.settle(consumed - reserved(request));
+        }
+    }
+
+    private Usage usageFor(AmazonWebServiceRequest request) {
+        if (request instanceof GetItemRequest
+            || request instanceof BatchGetItemRequest
+            || request instanceof QueryRequest
+            || request instanceof ScanRequest) {
+            return reads;
+        } else if (request instanceof PutItemRequest
+                   || request instanceof UpdateItemRequest
+                   || request instanceof DeleteItemRequest
+                   || request instanceof BatchWriteItemRequest) {
+            return writes;
+        }
+        return null;
+    }
+
+    private static double reserved(Request<?> request) {
+        Double reserved = request.getHandlerContext(RESERVED);
+        return reserved == null ? 0 : reserved;
+    }
+
+    private static double consumedCapacity(Object result) {
+        if (result instanceof GetItemResult) {
+            return capacityUnits(((GetItemResult) result).getConsumedCapacity());
+        } else if (result instanceof PutItemResult) {
+            return capacityUnits(((PutItemResult) result).getConsumedCapacity());
+        } else if (result instanceof UpdateItemResult) {
+            return capacityUnits(((UpdateItemResult) result).getConsumedCapacity());
+        } else if (result instanceof DeleteItemResult) {
+            return capacityUnits(((DeleteItemResult) result).getConsumedCapacity());
+        } else if (result instanceof BatchGetItemResult) {
+            return capacityUnits(((BatchGetItemResult) result).getConsumedCapacity());
+        } else if (result instanceof BatchWriteItemResult) {
+            return capacityUnits(((BatchWriteItemResult) result).getConsumedCapacity());
+        } else if (result instanceof QueryResult) {
+            return capacityUnits(((QueryResult) result).getConsumedCapacity());
+        } else if (result instanceof ScanResult) {
+            return capacityUnits(((ScanResult) result).getConsumedCapacity());
+        }
+        return 0;
+    }
+
+    private static double capacityUnits(List<ConsumedCapacity> consumedCapacities) {
+        double units = 0;
+        if (consumedCapacities != null) {
+            for (ConsumedCapacity consumedCapacity : consumedCapacities) {
+                units += capacityUnits(consumedCapacity);
+            }
+        }
+        return units;
+    }
+
+    private static double capacityUnits(ConsumedCapacity consumedCapacity) {
+        return consumedCapacity == null || consumedCapacity.getCapacityUnits() == null ? 0 : consumedCapacity.getCapacityUnits();
+    }
+
+    private static AdaptiveRateLimiter limiter(double capacity, Duration burst, Duration maxWait) {
+        return capacity > 0 ? new AdaptiveRateLimiter(capacity, burst, maxWait, System::nanoTime) : null;
+    }
+}
@@ -0,0 +1,94 @@
+package name.voses.hangman.persistence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+// Feeds the SDK's per-request metrics into the MetricRegistry. The SDK only samples its
+// connection pool while a collector is installed, and reports it as of each request, so the
+// gauges are the state seen by the most recent request and the histograms show the spread.
+//
+// Each operation (GetItem, UpdateItem, ...) is also timed, from the client's point of view:
+// including connection leasing, retries and backoff.
+public class DynamoDBClientMetrics extends RequestMetricCollector {
+    private final AtomicLong leasedConnections = new AtomicLong();
+    private final AtomicLong availableConnections = new AtomicLong();
+    private final AtomicLong pendingConnections = new AtomicLong();
+
+    private final Histogram leasedConnectionsSeen;
+    private final Histogram pendingConnectionsSeen;
+    private final Counter retries;
+    private final Counter throttles;
+
+    private final MetricRegistry metricRegistry;
+    private final MetricRegistry.MetricSupplier<Timer> timers;
+    private final Map<String, Timer> operationTimers = new ConcurrentHashMap<>();
+
+    public DynamoDBClientMetrics(MetricRegistry metricRegistry, MetricRegistry.MetricSupplier<Timer> timers) {
+        this.metricRegistry = metricRegistry;
+        this.timers = timers;
+
+        metricRegistry.gauge(MetricRegistry.name(DynamoDBClientMetrics.class, "pool", "leased"), () -> (Gauge<Long>) leasedConnections::get);
+        metricRegistry.gauge(MetricRegistry.name(DynamoDBClientMetrics.class, "pool", "available"), () -> (Gauge<Long>) availableConnections::get);
+        metricRegistry.gauge(MetricRegistry.name(DynamoDBClientMetrics.class, "pool", "pending"), () -> (Gauge<Long>) pendingConnections::get);
+
+        this.leasedConnectionsSeen = metricRegistry.histogram(MetricRegistry.name(DynamoDBClientMetrics.class, "pool", "leasedPerRequest"));
+        this.pendingConnectionsSeen = metricRegistry.histogram(MetricRegistry.name(DynamoDBClientMetrics.class, "pool", "pendingPerRequest"));
+        this.retries = metricRegistry.counter(MetricRegistry.name(DynamoDBClientMetrics.class, "retries"));
+        this.throttles = metricRegistry.counter(MetricRegistry.name(DynamoDBClientMetrics.class, "throttles"));
+    }
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        AWSRequestMetrics requestMetrics = request.getAWSRequestMetrics();
+        if (requestMetrics == null) {
+            return;
+        }
+        TimingInfo timingInfo = requestMetrics.getTimingInfo();
+
+        String operation = request.getHandlerContext(HandlerContextKey.OPERATION_NAME);
+        TimingInfo executeTime = timingInfo.getSubMeasurement(Field.ClientExecuteTime.name());
+        if (operation != null && executeTime != null && executeTime.getEndTimeNanoIfKnown() != null) {
+            operationTimers.computeIfAbsent(operation, (o) -> metricRegistry.timer(MetricRegistry.name(DynamoDBClientMetrics.class, "operations", o), timers))
+                           .update(executeTime.getEndTimeNanoIfKnown() - executeTime.getStartTimeNano(), TimeUnit.NANOSECONDS);
+        }
+
+        Number leased = timingInfo.getCounter(Field.HttpClientPoolLeasedCount.name());
+        if (leased != null) {
+            leasedConnections.set(leased.longValue());
+            leasedConnectionsSeen.update(leased.longValue());
+        }
+        Number available = timingInfo.getCounter(Field.HttpClientPoolAvailableCount.name());
+        if (available != null) {
+            availableConnections.set(available.longValue());
+        }
+        Number pending = timingInfo.getCounter(Field.HttpClientPoolPendingCount.name());
+        if (pending != null) {
+            pendingConnections.set(pending.longValue());
+            pendingConnectionsSeen.update(pending.longValue());
+        }
+
+        Number retryCount = timingInfo.getCounter(Field.RetryCount.name());
+        if (retryCount != null) {
+            retries.inc(retryCount.longValue());
+        }
+        Number throttleCount = timingInfo.getCounter(Field.ThrottleException.name());
+        if (throttleCount != null) {
+            throttles.inc(throttleCount.longValue());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package name.voses.hangman.persistence;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import name.voses.hangman.resources.Game;
+
+// A bounded LRU of games, with entries also dropped once they're older than the ttl.
+//
+// The map is split into segments each guarded by its own lock so concurrent requests for
+// different games rarely contend. Each segment is an access ordered LinkedHashMap, so the size
+// bound is enforced per segment (maximumSize / segments each).
+public class GameCache {
+    private static final int SEGMENTS = 16;
+
+    private static class Entry {
+        private final Game game;
+        private final long expiresAtNanos;
+
+        private Entry(Game game, long expiresAtNanos) {
+            this.game = game;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private class Segment extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        private Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= maximumSize) {
+                return false;
+            }
+
+            if (eldest.getValue().expiresAtNanos - nanoClock.getAsLong() <= 0) {
+                expirations.inc();
+            } else {
+                evictions.inc();
+            }
+            return true;
+        }
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter expirations;
+
+    public GameCache(int maximumSize, Duration ttl, MetricRegistry metricRegistry) {
+        this(maximumSize, ttl, metricRegistry, System::nanoTime);
+    }
+
+    GameCache(int maximumSize, Duration ttl, MetricRegistry metricRegistry, LongSupplier nanoClock) {
+        int segmentSize = Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+
+        this.hits = metricRegistry.counter(MetricRegistry.name(GameCache.class, "hits"));
+        this.misses = metricRegistry.counter(MetricRegistry.name(GameCache.class, "misses"));
+        this.evictions = metricRegistry.counter(MetricRegistry.name(GameCache.class, "evictions"));
+        this.expirations = metricRegistry.counter(MetricRegistry.name(GameCache.class, "expirations"));
+        metricRegistry.gauge(MetricRegistry.name(GameCache.class, "size"), () -> (Gauge<Long>) this::size);
+    }
+
+    public Game get(String gameId) {
+        Segment segment = segmentFor(gameId);
+        synchronized (segment) {
+            Entry entry = segment.get(gameId);
+            if (entry == null) {
+                misses.inc();
+                return null;
+            }
+
+            if (entry.expiresAtNanos - nanoClock.getAsLong() <= 0) {
+                segment.remove(gameId);
+                expirations.inc();
+                misses.inc();
+                return null;
+            }
+
+            hits.inc();
+            return entry.game;
+        }
+    }
+
+    public void put(Game game) {
+        Entry entry = new Entry(game, nanoClock.getAsLong() + ttlNanos);
+        Segment segment = segmentFor(game.getId());
+        synchronized (segment) {
+            // a read that started before a guess can finish after it, don't let it roll the
+            // cached state backwards (games only ever gain guesses)
+            Entry existing = segment.get(game.getId());
+            if (existing != null && progress(existing.game) > progress(game)) {
+                return;
+            }
+            segment.put(game.getId(), entry);
+        }
+    }
+
+    public void invalidate(String gameId) {
+        Segment segment = segmentFor(gameId);
+        synchronized (segment) {
+            segment.remove(gameId);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private static int progress(Game game) {
+        return game.getPlayState().getGuessedLetterCount();
+    }
+
+    private Segment segmentFor(String gameId) {
+        int hash = gameId.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+}
@@ -5,20 +5,28 @@ import java.util.Map;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveRequest;
 import com.amazonaws.services.dynamodbv2.model.ListTablesRequest;
 import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveStatus;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
 import com.amazonaws.services.dynamodbv2.util.TableUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import name.voses.hangman.logging.EventLog;
+
 // TODO: switch this to a junit extension, or otherwise simplify using this
 @Component
 public class GameInfoDynamoDBManagement implements CommandLineRunner {
@@ -34,25 +42,53 @@ public class GameInfoDynamoDBManagement implements CommandLineRunner {
     }
 
     public static void initDB(AmazonDynamoDB amazonDynamoDB, DynamoDBMapper mapper) throws Exception {
+        initDB(amazonDynamoDB, mapper, BillingMode.PROVISIONED, 5L, 5L);
+    }
+
+    // capacity is only used for PROVISIONED tables, PAY_PER_REQUEST ones scale on demand
+    public static void initDB(AmazonDynamoDB amazonDynamoDB, DynamoDBMapper mapper,
+                              BillingMode billingMode, long readCapacity, long writeCapacity) throws Exception {
     	CreateTableRequest ctr = mapper.generateCreateTableRequest(GameInfo.class);
-    	final ProvisionedThroughput provisionedThroughput = new ProvisionedThroughput(5L, 5L);
-    	ctr.setProvisionedThroughput(provisionedThroughput);
-        // ctr.getGlobalSecondaryIndexes().forEach(v -> v.setProvisionedThroughput(provisionedThroughput));
+        ctr.withBillingMode(billingMode);
+        if (billingMode == BillingMode.PROVISIONED) {
+            final ProvisionedThroughput provisionedThroughput = new ProvisionedThroughput(readCapacity, writeCapacity);
+            ctr.setProvisionedThroughput(provisionedThroughput);
+            // ctr.getGlobalSecondaryIndexes().forEach(v -> v.setProvisionedThroughput(provisionedThroughput));
+        } else {
+            ctr.setProvisionedThroughput(null);
+        }
 
         Boolean tableWasCreated = TableUtils.createTableIfNotExists(amazonDynamoDB, ctr);
         logJSON(Map.of("action", "initDB",
                        "operation", "created",
                        "tableWasCreated", tableWasCreated,
-                       "table", ctr.getTableName()));
+                       "table", ctr.getTableName(),
+                       "billingMode", billingMode.toString()));
 
         TableUtils.waitUntilActive(amazonDynamoDB, ctr.getTableName());
         logJSON(Map.of("action", "initDB",
                        "operation", "tableActive",
                        "table", ctr.getTableName()));
+
+        // only one ttl change is allowed per table per hour, so leave it alone if it's already on
+        TimeToLiveDescription ttl =
+            amazonDynamoDB.describeTimeToLive(new DescribeTimeToLiveRequest().withTableName(ctr.getTableName()))
+                          .getTimeToLiveDescription();
+        if (!TimeToLiveStatus.ENABLED.toString().equals(ttl.getTimeToLiveStatus())
+                && !TimeToLiveStatus.ENABLING.toString().equals(ttl.getTimeToLiveStatus())) {
+            amazonDynamoDB.updateTimeToLive(new UpdateTimeToLiveRequest()
+                .withTableName(ctr.getTableName())
+                .withTimeToLiveSpecification(new TimeToLiveSpecification().withAttributeName(GameInfoServiceImpl.EXPIRY_ATTRIBUTE)
+                                                                          .withEnabled(true)));
+            logJSON(Map.of("action", "initDB",
+                           "operation", "ttlEnabled",
+                           "table", ctr.getTableName(),
+                           "attribute", GameInfoServiceImpl.EXPIRY_ATTRIBUTE));
+        }
     }
 
     private static void logJSON(Map<?, ?> message) throws JsonProcessingException {
-        LOG.info(new ObjectMapper().writeValueAsString(message));
+        LOG.info(EventLog.writer().writeValueAsString(message));
     }
 
     @Autowired
@@ -60,10 +96,19 @@ public class GameInfoDynamoDBManagement implements CommandLineRunner {
     @Autowired
     private DynamoDBMapper mapper;
 
+    @Value("${amazon.dynamodb.table.billingMode:PROVISIONED}")
+    private BillingMode billingMode;
+
+    @Value("${amazon.dynamodb.table.readCapacity:5}")
+    private long readCapacity;
+
+    @Value("${amazon.dynamodb.table.writeCapacity:5}")
+    private long writeCapacity;
+
     @Override
     public void run(String... args) throws Exception {
         if (Arrays.stream(args).anyMatch("autosetupdb"::equals)) {
-            initDB(amazonDynamoDB, mapper);
+            initDB(amazonDynamoDB, mapper, billingMode, readCapacity, writeCapacity);
         }
     }
 }
\ No newline at end of file
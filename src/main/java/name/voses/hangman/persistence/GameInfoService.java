@@ -1,17 +1,46 @@
 package name.voses.hangman.persistence;
 
-import com.codahale.metrics.annotation.Timed;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Component;
 
 import name.voses.hangman.resources.Game;
 
-@Timed
 @Component
 public interface GameInfoService {
     public Game createGame(int maxWrongGuesses);
 
+    public List<Game> createGames(int count, int maxWrongGuesses);
+
     public Game storeGuess(Game game, String letter);
 
+    // Records the guess only if the game is still eligible for it, and returns the resulting
+    // state. Unlike storeGuess this needs no prior load of the game.
+    public GuessResult guessLetter(String gameId, String letter);
+
+    // Applies the letters in order as if each were passed to guessLetter, but with a single
+    // write. Letters the game isn't eligible for are skipped (and reported as such).
+    public BatchGuessResult guessLetters(String gameId, List<String> letters);
+
     public Game findGameWithGuesses(String gameId);
-}
\ No newline at end of file
+
+    // The games that exist, keyed by id in the order asked for; unknown ids are left out
+    public Map<String, Game> findGamesWithGuesses(Collection<String> gameIds);
+
+    // Non-blocking variants of the hot path, used when games.async is set. Stores that don't
+    // wait on the network just do the work in the calling thread.
+    public default CompletableFuture<Game> createGameAsync(int maxWrongGuesses) {
+        return CompletableFuture.completedFuture(createGame(maxWrongGuesses));
+    }
+
+    public default CompletableFuture<GuessResult> guessLetterAsync(String gameId, String letter) {
+        return CompletableFuture.completedFuture(guessLetter(gameId, letter));
+    }
+
+    public default CompletableFuture<Game> findGameWithGuessesAsync(String gameId) {
+        return CompletableFuture.completedFuture(findGameWithGuesses(gameId));
+    }
+}
@@ -1,95 +1,616 @@
 package name.voses.hangman.persistence;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.document.BatchGetItemOutcome;
+import com.amazonaws.services.dynamodbv2.document.BatchWriteItemOutcome;
 import com.amazonaws.services.dynamodbv2.document.DynamoDB;
 import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
 import com.amazonaws.services.dynamodbv2.document.Table;
+import com.amazonaws.services.dynamodbv2.document.TableKeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.document.TableWriteItems;
 import com.amazonaws.services.dynamodbv2.document.UpdateItemOutcome;
 import com.amazonaws.services.dynamodbv2.document.spec.GetItemSpec;
 import com.amazonaws.services.dynamodbv2.document.spec.UpdateItemSpec;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
 import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.codahale.metrics.annotation.Timed;
 import com.devskiller.friendly_id.FriendlyId;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.GuessOutcome;
 import name.voses.hangman.resources.PlayState;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.resources.PlayStateEngine;
+import name.voses.hangman.resources.WordCatalog;
+import name.voses.hangman.resources.WordIndex;
 
 @Service("gameInfoServiceImpl")
-@ConfigurationProperties(prefix="games")
+@Qualifier("gameInfoBackend")
+@ConditionalOnProperty(name = "games.storage", havingValue = "dynamodb", matchIfMissing = true)
+@Timed
 public class GameInfoServiceImpl implements GameInfoService {
     private static final String GAME_INFO_TABLE = "GameInfo";
     private static final String GUESS_KEY_PREFIX = "guess";
 
-    // TODO: it's unclear if there's a way to do this sort of loading of a list
-    //       config var, so instead currently using @ConfigurationProperties
-    private List<String> possibleWords = new ArrayList<>();
-    public List<String> getPossibleWords() { return this.possibleWords; }
+    // epoch seconds after which DynamoDB deletes the game. It can take a day or two to get to
+    // it, so until then expired games are filtered out here as if they were already gone.
+    static final String EXPIRY_ATTRIBUTE = "ttl";
 
+    // A guess is only recorded if it isn't a repeat, the game isn't lost (wrong_guess_count has
+    // hit the max) and the game isn't won (DynamoDB drops a set attribute once it's emptied, so
+    // unguessed_letters disappears after the last letter is found).
+    private static final String GUESS_CONDITION =
+        "attribute_exists(game_id)" +
+        " AND NOT contains(guesses, :letter)" +
+        " AND wrong_guess_count < max_wrong_guesses" +
+        " AND attribute_exists(unguessed_letters)" +
+        " AND (attribute_not_exists(#ttl) OR #ttl > :now)";
+
+    // word_letters maps every letter in the word to 0, so if_not_exists yields 0 for a hit and
+    // 1 for a miss. That lets the item track its own hit/miss state without us reading it first.
+    private static final String GUESS_UPDATE_SET =
+        "SET guesses = list_append(guesses, :letters)," +
+        " wrong_guess_count = wrong_guess_count + if_not_exists(word_letters.#letter, :one)";
+    private static final String GUESS_UPDATE_DELETE = " DELETE unguessed_letters :letterSet";
+
+    // storeGuess, and guesses on games created before the bookkeeping attributes existed (which
+    // can never satisfy GUESS_CONDITION), only append, and only a letter that isn't there yet
+    private static final String STORE_GUESS_CONDITION = "NOT contains(guesses, :letter)";
+    private static final String STORE_GUESS_UPDATE = "SET guesses = list_append(guesses, :letters)";
+
+    // Reads only fetch what loadGame needs (plus the expiry), leaving out the bookkeeping
+    // attributes the guess condition uses. A batch guess also needs to know whether the
+    // bookkeeping is there at all.
+    private static final String GAME_PROJECTION = "game_id, max_wrong_guesses, word_being_guessed, guesses, #ttl";
+    private static final String BATCH_GUESS_PROJECTION = GAME_PROJECTION + ", wrong_guess_count";
+    private static final Map<String, String> PROJECTION_NAMES = Map.of("#ttl", EXPIRY_ATTRIBUTE);
+
+    // A batch is worked out against a read of the game, so it's only written if nothing was
+    // appended since; a concurrent guess means reading and trying again after a random wait
+    // (so the guessers that lost don't all come back at once), and giving up as conflicted
+    // once the attempts run out.
+    static final int BATCH_GUESS_ATTEMPTS = 5;
+    private static final long BATCH_GUESS_BACKOFF_BASE_MILLIS = 5;
+
+    private static final int BATCH_WRITE_LIMIT = 25;
+    private static final int BATCH_GET_LIMIT = 100;
+    // retries of whatever a batch call handed back unprocessed, backing off exponentially
+    private static final int BATCH_ATTEMPTS = 8;
+    private static final long BATCH_BACKOFF_BASE_MILLIS = 25;
+    private static final long BATCH_BACKOFF_MAX_MILLIS = 2000;
 
     @Autowired
 	private AmazonDynamoDB amazonDynamoDB;
 
+    // only there when games.async is set
+    @Autowired(required = false)
+    private AmazonDynamoDBAsync amazonDynamoDBAsync;
+
+    @Autowired
+    private WordCatalog wordCatalog;
+
+    @Value("${games.dynamodb.expiry:6h}")
+    private Duration expiry;
+
+    // push the expiry back on every guess, so only idle games expire
+    @Value("${games.dynamodb.extendExpiryOnGuess:true}")
+    private boolean extendExpiryOnGuess;
+
+    private volatile DynamoDB dynamoDB;
+    private volatile Table table;
+
     public Game createGame(int maxWrongGuesses) {
         Table table = getTable();
 
-        String gameWord = randomWord();
-        Game game = new Game(FriendlyId.createFriendlyId(),
-                             maxWrongGuesses,
-                             gameWord,
-                             PlayState.build(maxWrongGuesses, new String[0], gameWord));
-
-        Item gameItem = new Item().withPrimaryKey("game_id", game.getId())
-                                  .withInt("max_wrong_guesses", game.getMaxWrongGuesses())
-                                  .withString("word_being_guessed", game.getWordBeingGuessed())
-                                  .with("created_at", new Date().getTime())
-                                  .withList("guesses", List.of());
-        table.putItem(gameItem);
+        WordIndex word = wordCatalog.randomWord();
+        Game game = newGame(word, maxWrongGuesses);
+        table.putItem(newGameItem(game, word, expiresAt()));
 
         return game;
     }
 
+    // BatchWriteItem takes at most 25 puts, and may hand some back unprocessed when throttled
+    public List<Game> createGames(int count, int maxWrongGuesses) {
+        DynamoDB dynamoDB = getDynamoDB();
+
+        long expiresAt = expiresAt();
+        List<Game> games = new ArrayList<>(count);
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            WordIndex word = wordCatalog.randomWord();
+            Game game = newGame(word, maxWrongGuesses);
+            games.add(game);
+            items.add(newGameItem(game, word, expiresAt));
+        }
+
+        for (int start = 0; start < items.size(); start += BATCH_WRITE_LIMIT) {
+            TableWriteItems writeItems =
+                new TableWriteItems(GAME_INFO_TABLE).withItemsToPut(items.subList(start, Math.min(items.size(), start + BATCH_WRITE_LIMIT)));
+
+            BatchWriteItemOutcome outcome = dynamoDB.batchWriteItem(writeItems);
+            for (int attempt = 1; !outcome.getUnprocessedItems().isEmpty(); attempt++) {
+                backOff(attempt, "batchWriteItem");
+                outcome = dynamoDB.batchWriteItemUnprocessed(outcome.getUnprocessedItems());
+            }
+        }
+
+        return games;
+    }
+
     public Game storeGuess(Game game, String letter) {
         Table table = getTable();
 
+        // a repeat that raced past the eligibility check isn't stored again
+        try {
+            UpdateItemOutcome updateOutcome = table.updateItem(storeGuessUpdate(game.getId(), letter));
+            return loadGame(game.getId(), updateOutcome.getItem());
+        } catch (ConditionalCheckFailedException e) {
+            return findGameWithGuesses(game.getId());
+        }
+    }
+
+    private UpdateItemSpec storeGuessUpdate(String gameId, String letter) {
+        Map<String, Object> values = new HashMap<>();
+        values.put(":letter", letter);
+        values.put(":letters", List.of(letter));
+        UpdateItemSpec updateItemSpec =
+            new UpdateItemSpec().withPrimaryKey("game_id", gameId)
+                                .withConditionExpression(STORE_GUESS_CONDITION)
+                                .withUpdateExpression(STORE_GUESS_UPDATE + extendExpiry(values))
+                                .withValueMap(values)
+                                .withReturnValues(ReturnValue.ALL_NEW);
+        if (extendExpiryOnGuess) {
+            updateItemSpec.withNameMap(Map.of("#ttl", EXPIRY_ATTRIBUTE));
+        }
+        return updateItemSpec;
+    }
+
+    public GuessResult guessLetter(String gameId, String letter) {
+        Table table = getTable();
+
+        Map<String, Object> values = new HashMap<>();
+        values.put(":letter", letter);
+        values.put(":letters", List.of(letter));
+        values.put(":letterSet", Set.of(letter));
+        values.put(":one", 1);
+        values.put(":now", nowSeconds());
         UpdateItemSpec updateItemSpec =
-            new UpdateItemSpec().withPrimaryKey("game_id", game.getId())
-                                .withUpdateExpression("SET guesses = list_append(guesses, :letter)")
-                                .withValueMap(Map.of(":letter", List.of(letter)))
+            new UpdateItemSpec().withPrimaryKey("game_id", gameId)
+                                .withConditionExpression(GUESS_CONDITION)
+                                .withUpdateExpression(GUESS_UPDATE_SET + extendExpiry(values) + GUESS_UPDATE_DELETE)
+                                .withNameMap(Map.of("#letter", letter,
+                                                    "#ttl", EXPIRY_ATTRIBUTE))
+                                .withValueMap(values)
                                 .withReturnValues(ReturnValue.ALL_NEW);
-        UpdateItemOutcome updateOutcome = table.updateItem(updateItemSpec);
+        try {
+            UpdateItemOutcome updateOutcome = table.updateItem(updateItemSpec);
+            return GuessResult.recorded(loadGame(gameId, updateOutcome.getItem()));
+        } catch (ConditionalCheckFailedException e) {
+            return rejectedGuess(table, gameId, letter);
+        }
+    }
+
+    public BatchGuessResult guessLetters(String gameId, List<String> letters) {
+        Table table = getTable();
+
+        for (int attempt = 1; ; attempt++) {
+            GetItemSpec getItemSpec = new GetItemSpec().withPrimaryKey("game_id", gameId)
+                                                       .withProjectionExpression(BATCH_GUESS_PROJECTION)
+                                                       .withNameMap(PROJECTION_NAMES)
+                                                       .withConsistentRead(true);
+            Item item = table.getItem(getItemSpec);
+            if (item == null || isExpired(item)) {
+                return BatchGuessResult.notFound();
+            }
+
+            int maxWrongGuesses = item.getInt("max_wrong_guesses");
+            String wordBeingGuessed = item.getString("word_being_guessed");
+            List<String> storedGuesses = item.getList("guesses");
+
+            PlayStateEngine engine = new PlayStateEngine(wordCatalog.indexFor(wordBeingGuessed), maxWrongGuesses);
+            for (String guess : storedGuesses) {
+                engine.replay(guess.codePointAt(0));
+            }
+
+            List<GuessOutcome> outcomes = new ArrayList<>(letters.size());
+            List<String> appliedLetters = new ArrayList<>();
+            Set<String> hitLetters = new LinkedHashSet<>();
+            int misses = 0;
+            for (String letter : letters) {
+                GuessOutcome outcome = engine.guess(letter.codePointAt(0));
+                outcomes.add(outcome);
+                if (outcome == GuessOutcome.HIT) {
+                    appliedLetters.add(letter);
+                    hitLetters.add(letter);
+                } else if (outcome == GuessOutcome.MISS) {
+                    appliedLetters.add(letter);
+                    misses++;
+                }
+            }
+
+            Game game = new Game(gameId, maxWrongGuesses, wordBeingGuessed, engine.snapshot());
+            if (appliedLetters.isEmpty()) {
+                return BatchGuessResult.of(game, outcomes);
+            }
 
-        return loadGame(game.getId(), updateOutcome.getItem());
+            try {
+                table.updateItem(batchGuessUpdate(item, storedGuesses.size(), appliedLetters, hitLetters, misses));
+                return BatchGuessResult.of(game, outcomes);
+            } catch (ConditionalCheckFailedException e) {
+                if (attempt == BATCH_GUESS_ATTEMPTS) {
+                    return BatchGuessResult.conflicted();
+                }
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(BATCH_GUESS_BACKOFF_BASE_MILLIS << attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return BatchGuessResult.conflicted();
+                }
+            }
+        }
     }
 
     public Game findGameWithGuesses(String gameId) {
         Table table = getTable();
 
-        GetItemSpec getItemSpec = new GetItemSpec().withPrimaryKey("game_id", gameId);
+        GetItemSpec getItemSpec = new GetItemSpec().withPrimaryKey("game_id", gameId)
+                                                   .withProjectionExpression(GAME_PROJECTION)
+                                                   .withNameMap(PROJECTION_NAMES);
 
         Item outcome = table.getItem(getItemSpec);
+        if (outcome == null || isExpired(outcome)) {
+            return null;
+        }
         return loadGame(gameId, outcome);
     }
 
-    private String randomWord() {
-        int randomElementIndex = ThreadLocalRandom.current().nextInt(possibleWords.size());
-        return possibleWords.get(randomElementIndex);
+    // BatchGetItem takes at most 100 keys, and may hand some back unprocessed when throttled
+    public Map<String, Game> findGamesWithGuesses(Collection<String> gameIds) {
+        DynamoDB dynamoDB = getDynamoDB();
+
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(gameIds));
+        Map<String, Game> found = new HashMap<>();
+        for (int start = 0; start < distinctIds.size(); start += BATCH_GET_LIMIT) {
+            TableKeysAndAttributes keys = new TableKeysAndAttributes(GAME_INFO_TABLE).withProjectionExpression(GAME_PROJECTION)
+                                                                                     .withNameMap(PROJECTION_NAMES);
+            distinctIds.subList(start, Math.min(distinctIds.size(), start + BATCH_GET_LIMIT))
+                       .forEach((gameId) -> keys.addHashOnlyPrimaryKey("game_id", gameId));
+
+            BatchGetItemOutcome outcome = dynamoDB.batchGetItem(keys);
+            for (int attempt = 1; ; attempt++) {
+                for (Item item : outcome.getTableItems().getOrDefault(GAME_INFO_TABLE, List.of())) {
+                    if (!isExpired(item)) {
+                        String gameId = item.getString("game_id");
+                        found.put(gameId, loadGame(gameId, item));
+                    }
+                }
+                if (outcome.getUnprocessedKeys().isEmpty()) {
+                    break;
+                }
+
+                backOff(attempt, "batchGetItem");
+                outcome = dynamoDB.batchGetItemUnprocessed(outcome.getUnprocessedKeys());
+            }
+        }
+
+        // hand them back in the order asked for
+        Map<String, Game> games = new LinkedHashMap<>();
+        for (String gameId : distinctIds) {
+            if (found.containsKey(gameId)) {
+                games.put(gameId, found.get(gameId));
+            }
+        }
+        return games;
     }
 
-    private Table getTable() {
-        DynamoDB dynamoDB = new DynamoDB(amazonDynamoDB);
+    // The async variants go through the low level client (the document API has no async
+    // support), converting to and from Items so the rest of the mapping is shared.
+    @Override
+    public CompletableFuture<Game> createGameAsync(int maxWrongGuesses) {
+        if (amazonDynamoDBAsync == null) {
+            return GameInfoService.super.createGameAsync(maxWrongGuesses);
+        }
+
+        WordIndex word = wordCatalog.randomWord();
+        Game game = newGame(word, maxWrongGuesses);
+        PutItemRequest request = new PutItemRequest().withTableName(GAME_INFO_TABLE)
+                                                     .withItem(ItemUtils.toAttributeValues(newGameItem(game, word, expiresAt())));
 
-        return dynamoDB.getTable(GAME_INFO_TABLE);
+        CompletableFuture<PutItemResult> put = new CompletableFuture<>();
+        amazonDynamoDBAsync.putItemAsync(request, completing(put));
+        return put.thenApply((result) -> game);
+    }
+
+    @Override
+    public CompletableFuture<GuessResult> guessLetterAsync(String gameId, String letter) {
+        if (amazonDynamoDBAsync == null) {
+            return GameInfoService.super.guessLetterAsync(gameId, letter);
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put(":letter", letter);
+        values.put(":letters", List.of(letter));
+        values.put(":letterSet", Set.of(letter));
+        values.put(":one", 1);
+        values.put(":now", nowSeconds());
+        UpdateItemRequest request =
+            new UpdateItemRequest().withTableName(GAME_INFO_TABLE)
+                                   .withKey(Map.of("game_id", new AttributeValue(gameId)))
+                                   .withConditionExpression(GUESS_CONDITION)
+                                   .withUpdateExpression(GUESS_UPDATE_SET + extendExpiry(values) + GUESS_UPDATE_DELETE)
+                                   .withExpressionAttributeNames(Map.of("#letter", letter,
+                                                                        "#ttl", EXPIRY_ATTRIBUTE))
+                                   .withExpressionAttributeValues(ItemUtils.fromSimpleMap(values))
+                                   .withReturnValues(ReturnValue.ALL_NEW);
+
+        CompletableFuture<UpdateItemResult> update = new CompletableFuture<>();
+        amazonDynamoDBAsync.updateItemAsync(request, completing(update));
+        return update.handle((result, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(GuessResult.recorded(loadGame(gameId, ItemUtils.toItem(result.getAttributes()))));
+            } else if (error instanceof ConditionalCheckFailedException) {
+                return rejectedGuessAsync(gameId, letter);
+            }
+            return CompletableFuture.<GuessResult>failedFuture(error);
+        }).thenCompose(Function.identity());
+    }
+
+    @Override
+    public CompletableFuture<Game> findGameWithGuessesAsync(String gameId) {
+        if (amazonDynamoDBAsync == null) {
+            return GameInfoService.super.findGameWithGuessesAsync(gameId);
+        }
+
+        return getItemAsync(gameId, false).thenApply((item) -> item == null ? null : loadGame(gameId, item));
+    }
+
+    // Only reached when the conditional update was refused, so this read is off the common path.
+    // The game state only ever moves forward, so whatever made the condition fail still holds.
+    private GuessResult rejectedGuess(Table table, String gameId, String letter) {
+        GetItemSpec getItemSpec = new GetItemSpec().withPrimaryKey("game_id", gameId)
+                                                   .withProjectionExpression(GAME_PROJECTION)
+                                                   .withNameMap(PROJECTION_NAMES)
+                                                   .withConsistentRead(true);
+        Item item = table.getItem(getItemSpec);
+        if (item == null || isExpired(item)) {
+            return GuessResult.notFound();
+        }
+
+        Game game = loadGame(gameId, item);
+        GuessIneligibleReason ineligibleReason = game.ineligibleToGuessReason(letter);
+        if (ineligibleReason != null) {
+            return GuessResult.ineligible(game, ineligibleReason);
+        }
+
+        // games created before the wrong_guess_count/unguessed_letters bookkeeping existed can
+        // never satisfy the condition, so record those the way they always were
+        try {
+            return GuessResult.recorded(loadGame(gameId, table.updateItem(storeGuessUpdate(gameId, letter)).getItem()));
+        } catch (ConditionalCheckFailedException e) {
+            // the same letter was guessed since the read
+            Game latest = findGameWithGuesses(gameId);
+            return latest == null ? GuessResult.notFound() : GuessResult.ineligible(latest, GuessIneligibleReason.REPEAT);
+        }
+    }
+
+    private UpdateItemSpec batchGuessUpdate(Item item, int readGuessCount,
+                                            List<String> appliedLetters, Set<String> hitLetters, int misses) {
+        Map<String, Object> values = new HashMap<>();
+        values.put(":guessCount", readGuessCount);
+        values.put(":letters", appliedLetters);
+
+        String update = "SET guesses = list_append(guesses, :letters)" + extendExpiry(values);
+        // games created before the bookkeeping attributes existed only get the append
+        if (item.hasAttribute("wrong_guess_count")) {
+            update += ", wrong_guess_count = wrong_guess_count + :misses";
+            values.put(":misses", misses);
+            if (!hitLetters.isEmpty()) {
+                update += " DELETE unguessed_letters :hitLetters";
+                values.put(":hitLetters", hitLetters);
+            }
+        }
+
+        UpdateItemSpec updateItemSpec = new UpdateItemSpec().withPrimaryKey("game_id", item.getString("game_id"))
+                                                            .withConditionExpression("size(guesses) = :guessCount")
+                                                            .withUpdateExpression(update)
+                                                            .withValueMap(values);
+        if (extendExpiryOnGuess) {
+            updateItemSpec.withNameMap(Map.of("#ttl", EXPIRY_ATTRIBUTE));
+        }
+        return updateItemSpec;
+    }
+
+    // same as rejectedGuess
+    private CompletableFuture<GuessResult> rejectedGuessAsync(String gameId, String letter) {
+        return getItemAsync(gameId, true).thenCompose((item) -> {
+            if (item == null || isExpired(item)) {
+                return CompletableFuture.completedFuture(GuessResult.notFound());
+            }
+
+            Game game = loadGame(gameId, item);
+            GuessIneligibleReason ineligibleReason = game.ineligibleToGuessReason(letter);
+            if (ineligibleReason != null) {
+                return CompletableFuture.completedFuture(GuessResult.ineligible(game, ineligibleReason));
+            }
+
+            Map<String, Object> values = new HashMap<>();
+            values.put(":letter", letter);
+            values.put(":letters", List.of(letter));
+            UpdateItemRequest request =
+                new UpdateItemRequest().withTableName(GAME_INFO_TABLE)
+                                       .withKey(Map.of("game_id", new AttributeValue(gameId)))
+                                       .withConditionExpression(STORE_GUESS_CONDITION)
+                                       .withUpdateExpression(STORE_GUESS_UPDATE + extendExpiry(values))
+                                       .withExpressionAttributeValues(ItemUtils.fromSimpleMap(values))
+                                       .withReturnValues(ReturnValue.ALL_NEW);
+            if (extendExpiryOnGuess) {
+                request.withExpressionAttributeNames(Map.of("#ttl", EXPIRY_ATTRIBUTE));
+            }
+
+            CompletableFuture<UpdateItemResult> update = new CompletableFuture<>();
+            amazonDynamoDBAsync.updateItemAsync(request, completing(update));
+            return update.handle((result, error) -> {
+                if (error == null) {
+                    return CompletableFuture.completedFuture(GuessResult.recorded(loadGame(gameId, ItemUtils.toItem(result.getAttributes()))));
+                } else if (error instanceof ConditionalCheckFailedException) {
+                    // the same letter was guessed since the read
+                    return getItemAsync(gameId, true).thenApply((latest) -> latest == null
+                        ? GuessResult.notFound()
+                        : GuessResult.ineligible(loadGame(gameId, latest), GuessIneligibleReason.REPEAT));
+                }
+                return CompletableFuture.<GuessResult>failedFuture(error);
+            }).thenCompose(Function.identity());
+        });
+    }
+
+    private CompletableFuture<Item> getItemAsync(String gameId, boolean consistentRead) {
+        GetItemRequest request = new GetItemRequest().withTableName(GAME_INFO_TABLE)
+                                                     .withKey(Map.of("game_id", new AttributeValue(gameId)))
+                                                     .withProjectionExpression(GAME_PROJECTION)
+                                                     .withExpressionAttributeNames(PROJECTION_NAMES)
+                                                     .withConsistentRead(consistentRead);
+
+        CompletableFuture<GetItemResult> get = new CompletableFuture<>();
+        amazonDynamoDBAsync.getItemAsync(request, completing(get));
+        return get.thenApply((result) -> {
+            Item item = result.getItem() == null ? null : ItemUtils.toItem(result.getItem());
+            return item == null || isExpired(item) ? null : item;
+        });
+    }
+
+    private static <Q extends AmazonWebServiceRequest, R> AsyncHandler<Q, R> completing(CompletableFuture<R> future) {
+        return new AsyncHandler<Q, R>() {
+            @Override
+            public void onError(Exception exception) {
+                future.completeExceptionally(exception);
+            }
+
+            @Override
+            public void onSuccess(Q request, R result) {
+                future.complete(result);
+            }
+        };
+    }
+
+    private static Game newGame(WordIndex word, int maxWrongGuesses) {
+        return new Game(FriendlyId.createFriendlyId(),
+                        maxWrongGuesses,
+                        word.getWord(),
+                        PlayState.build(maxWrongGuesses, new String[0], word));
+    }
+
+    private static Item newGameItem(Game game, WordIndex word, long expiresAt) {
+        return new Item().withPrimaryKey("game_id", game.getId())
+                         .withInt("max_wrong_guesses", game.getMaxWrongGuesses())
+                         .withString("word_being_guessed", game.getWordBeingGuessed())
+                         .with("created_at", new Date().getTime())
+                         .withList("guesses", List.of())
+                         .withInt("wrong_guess_count", 0)
+                         .withStringSet("unguessed_letters", distinctLetters(word))
+                         .withMap("word_letters", wordLetterCosts(word))
+                         .withLong(EXPIRY_ATTRIBUTE, expiresAt);
+    }
+
+    private static long nowSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+
+    private long expiresAt() {
+        return nowSeconds() + expiry.toSeconds();
+    }
+
+    // games created before the expiry was written never expire
+    private static boolean isExpired(Item item) {
+        return item.hasAttribute(EXPIRY_ATTRIBUTE) && item.getLong(EXPIRY_ATTRIBUTE) <= nowSeconds();
+    }
+
+    // the SET clause pushing the expiry back (if guesses do that), adding its value to values
+    private String extendExpiry(Map<String, Object> values) {
+        if (!extendExpiryOnGuess) {
+            return "";
+        }
+        values.put(":ttl", expiresAt());
+        return ", #ttl = :ttl";
+    }
+
+    private static void backOff(int attempt, String operation) {
+        if (attempt > BATCH_ATTEMPTS) {
+            throw new IllegalStateException(operation + " still had unprocessed requests after " + BATCH_ATTEMPTS + " retries");
+        }
+
+        try {
+            Thread.sleep(Math.min(BATCH_BACKOFF_MAX_MILLIS, BATCH_BACKOFF_BASE_MILLIS << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted retrying " + operation, e);
+        }
+    }
+
+    private static Set<String> distinctLetters(WordIndex word) {
+        Set<String> letters = new LinkedHashSet<>(word.letterCount());
+        for (int i = 0; i < word.letterCount(); i++) {
+            letters.add(PlayState.codePointToString(word.letter(i)));
+        }
+        return letters;
+    }
+
+    private static Map<String, Object> wordLetterCosts(WordIndex word) {
+        Map<String, Object> costs = new LinkedHashMap<>();
+        distinctLetters(word).forEach((letter) -> costs.put(letter, 0));
+        return costs;
+    }
+
+    // The document API wrappers are thin and thread safe, so they're built once and shared
+    private DynamoDB getDynamoDB() {
+        DynamoDB dynamoDB = this.dynamoDB;
+        if (dynamoDB == null) {
+            dynamoDB = new DynamoDB(amazonDynamoDB);
+            this.dynamoDB = dynamoDB;
+        }
+        return dynamoDB;
+    }
+
+    private Table getTable() {
+        Table table = this.table;
+        if (table == null) {
+            table = getDynamoDB().getTable(GAME_INFO_TABLE);
+            this.table = table;
+        }
+        return table;
     }
 
     private Game loadGame(String gameId, Item gameOutcome) {
@@ -97,7 +618,7 @@ public class GameInfoServiceImpl implements GameInfoService {
         String wordBeingGuessed = gameOutcome.getString("word_being_guessed");
         String[] guesses = gameOutcome.getList("guesses").toArray(new String[0]);
 
-        PlayState playState = PlayState.build(maxWrongGuesses, guesses, wordBeingGuessed);
+        PlayState playState = PlayState.build(maxWrongGuesses, guesses, wordCatalog.indexFor(wordBeingGuessed));
 
         Game game = new Game(gameId,
                              maxWrongGuesses,
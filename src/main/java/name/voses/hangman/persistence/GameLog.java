@@ -0,0 +1,469 @@
+package name.voses.hangman.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Append-only log of game records in memory-mapped segment files.
+//
+// A game is a GAME record (id, created at, last active at, max wrong guesses, word and any
+// guesses already folded into it) followed by a GUESS record per guess, each with its time. Every record points back at the
+// previous record of the same game, so the in-memory index only needs the position of each
+// game's latest record; reading a game walks that chain back to its GAME record.
+//
+// Record layout, at a position of (segment id << 32 | offset):
+//     int length (of everything after it, 0 marks the end of the written data)
+//     int crc32 (of everything after it)
+//     byte type, long previous position, short id length, id (UTF-8)
+//     GAME:  long created at, long last active at, int max wrong guesses, short word length,
+//            word (UTF-8), int guess count, int code point * guess count
+//     GUESS: long guessed at, int code point
+//     DROP:  nothing, the game was dropped by a compaction
+//
+// The length is written last, so a record torn by a crash reads as the end of the log. On
+// startup every segment is scanned in order to rebuild the index.
+//
+// Once the active segment fills up it's sealed and a new one started. compact() rewrites every
+// game with records in sealed segments as a single GAME record in the active segment (or drops
+// it), after which the sealed segments are deleted. A dropped game whose latest record is in the
+// active segment also gets a DROP record, otherwise the scan after a restart would index it again
+// from that record while the rest of its chain is gone.
+class GameLog implements Closeable {
+    private static Logger LOG = LoggerFactory.getLogger(GameLog.class);
+
+    private static final byte GAME = 1;
+    private static final byte GUESS = 2;
+    private static final byte DROP = 3;
+    private static final long NONE = -1;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+
+    static class GameRecord {
+        final String gameId;
+        final long createdAtMillis;
+        // when the game was created or last guessed on
+        final long activeAtMillis;
+        final int maxWrongGuesses;
+        final String word;
+        final int[] guesses;
+
+        GameRecord(String gameId, long createdAtMillis, long activeAtMillis, int maxWrongGuesses, String word, int[] guesses) {
+            this.gameId = gameId;
+            this.createdAtMillis = createdAtMillis;
+            this.activeAtMillis = activeAtMillis;
+            this.maxWrongGuesses = maxWrongGuesses;
+            this.word = word;
+            this.guesses = guesses;
+        }
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+
+        private Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceEveryWrite;
+
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    // held for appends and rewrites, which all go to the end of the active segment
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // readers hold the read lock while following a chain, deleting segments takes the write lock
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+
+    private Segment active;
+    private int writeOffset;
+
+    GameLog(Path directory, int segmentSize, boolean forceEveryWrite) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceEveryWrite = forceEveryWrite;
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    GameRecord read(String gameId) {
+        segmentsLock.readLock().lock();
+        try {
+            Long position = index.get(gameId);
+            return position == null ? null : readChain(position);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    void appendGame(GameRecord game) {
+        appendLock.lock();
+        try {
+            index.put(game.gameId, append(encodeGame(game, NONE)));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // false if the game isn't in the log
+    boolean appendGuess(String gameId, int codePoint, long guessedAtMillis) {
+        appendLock.lock();
+        try {
+            Long previous = index.get(gameId);
+            if (previous == null) {
+                return false;
+            }
+
+            ByteBuffer record = startRecord(GUESS, previous, gameId, Long.BYTES + Integer.BYTES);
+            record.putLong(guessedAtMillis);
+            record.putInt(codePoint);
+            index.put(gameId, append(record));
+            return true;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    Set<String> gameIds() {
+        return index.keySet();
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    int gameCount() {
+        return index.size();
+    }
+
+    // Rewrites (or, if `keep` refuses them, drops) every game with records in a sealed segment,
+    // then deletes those segments. `keep` may also return a replacement record, eg. with its
+    // guesses trimmed down to the ones that count.
+    void compact(Function<GameRecord, GameRecord> keep) throws IOException {
+        List<Segment> sealed;
+        appendLock.lock();
+        try {
+            sealed = new ArrayList<>(segments.headMap(active.id, false).values());
+        } finally {
+            appendLock.unlock();
+        }
+        if (sealed.isEmpty()) {
+            return;
+        }
+        int newestSealed = sealed.get(sealed.size() - 1).id;
+
+        for (String gameId : index.keySet()) {
+            appendLock.lock();
+            try {
+                Long position = index.get(gameId);
+                if (position == null || !touchesSegmentsUpTo(position, newestSealed)) {
+                    continue;
+                }
+
+                // a game whose chain is already broken can only be dropped
+                GameRecord record = read(gameId);
+                GameRecord replacement = record == null ? null : keep.apply(record);
+                if (replacement == null) {
+                    index.remove(gameId);
+                    if (segmentOf(position) > newestSealed) {
+                        append(startRecord(DROP, NONE, gameId, 0));
+                    }
+                } else {
+                    index.put(gameId, append(encodeGame(replacement, NONE)));
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        }
+
+        // the rewritten games and DROP records have to be on disk before what they replace is gone
+        appendLock.lock();
+        try {
+            active.buffer.force();
+        } finally {
+            appendLock.unlock();
+        }
+
+        segmentsLock.writeLock().lock();
+        try {
+            for (Segment segment : sealed) {
+                segments.remove(segment.id);
+                Files.deleteIfExists(segment.path);
+            }
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (active != null) {
+                active.buffer.force();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private boolean touchesSegmentsUpTo(long position, int segmentId) {
+        segmentsLock.readLock().lock();
+        try {
+            while (position != NONE) {
+                Segment segment = segments.get(segmentOf(position));
+                if (segment == null || segmentOf(position) <= segmentId) {
+                    return true;
+                }
+                position = segment.buffer.getLong(offsetOf(position) + HEADER_BYTES + 1);
+            }
+            return false;
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    // must hold the segments read lock, null if the chain leads into a deleted segment
+    private GameRecord readChain(long position) {
+        int[] laterGuesses = new int[8];
+        int laterGuessCount = 0;
+        long lastGuessedAtMillis = 0;
+
+        while (true) {
+            Segment segment = segments.get(segmentOf(position));
+            if (segment == null) {
+                LOG.warn("Game record at {} points into deleted segment {}, treating the game as gone",
+                         position, segmentOf(position));
+                return null;
+            }
+            ByteBuffer buffer = segment.buffer;
+            int offset = offsetOf(position) + HEADER_BYTES;
+            byte type = buffer.get(offset);
+            long previous = buffer.getLong(offset + 1);
+            int idLength = buffer.getShort(offset + 9);
+            offset += 11 + idLength;
+
+            if (type == GUESS) {
+                if (laterGuessCount == laterGuesses.length) {
+                    laterGuesses = Arrays.copyOf(laterGuesses, laterGuessCount * 2);
+                }
+                // the first one found is the latest
+                if (laterGuessCount == 0) {
+                    lastGuessedAtMillis = buffer.getLong(offset);
+                }
+                laterGuesses[laterGuessCount++] = buffer.getInt(offset + Long.BYTES);
+                position = previous;
+                continue;
+            }
+
+            byte[] id = new byte[idLength];
+            buffer.get(offset - idLength, id);
+            long createdAtMillis = buffer.getLong(offset);
+            long activeAtMillis = buffer.getLong(offset + 8);
+            int maxWrongGuesses = buffer.getInt(offset + 16);
+            int wordLength = buffer.getShort(offset + 20);
+            byte[] word = new byte[wordLength];
+            buffer.get(offset + 22, word);
+            offset += 22 + wordLength;
+            int foldedGuessCount = buffer.getInt(offset);
+            offset += Integer.BYTES;
+
+            // folded guesses came first, then the GUESS records (which we collected newest first)
+            int[] guesses = new int[foldedGuessCount + laterGuessCount];
+            for (int i = 0; i < foldedGuessCount; i++) {
+                guesses[i] = buffer.getInt(offset + i * Integer.BYTES);
+            }
+            for (int i = 0; i < laterGuessCount; i++) {
+                guesses[foldedGuessCount + i] = laterGuesses[laterGuessCount - 1 - i];
+            }
+
+            return new GameRecord(new String(id, StandardCharsets.UTF_8),
+                                  createdAtMillis,
+                                  Math.max(activeAtMillis, lastGuessedAtMillis),
+                                  maxWrongGuesses,
+                                  new String(word, StandardCharsets.UTF_8),
+                                  guesses);
+        }
+    }
+
+    private ByteBuffer encodeGame(GameRecord game, long previous) {
+        byte[] word = game.word.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = startRecord(GAME, previous, game.gameId,
+                                        8 + 8 + 4 + 2 + word.length + 4 + game.guesses.length * Integer.BYTES);
+        record.putLong(game.createdAtMillis);
+        record.putLong(game.activeAtMillis);
+        record.putInt(game.maxWrongGuesses);
+        record.putShort((short) word.length);
+        record.put(word);
+        record.putInt(game.guesses.length);
+        for (int guess : game.guesses) {
+            record.putInt(guess);
+        }
+        return record;
+    }
+
+    private ByteBuffer startRecord(byte type, long previous, String gameId, int payloadBytes) {
+        byte[] id = gameId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + 1 + 8 + 2 + id.length + payloadBytes);
+        record.position(HEADER_BYTES);
+        record.put(type);
+        record.putLong(previous);
+        record.putShort((short) id.length);
+        record.put(id);
+        return record;
+    }
+
+    // must hold the append lock
+    private long append(ByteBuffer record) {
+        int length = record.position() - HEADER_BYTES;
+        if (HEADER_BYTES + length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes doesn't fit in a segment");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+
+        if (writeOffset + HEADER_BYTES + length > segmentSize) {
+            roll();
+        }
+
+        long position = position(active.id, writeOffset);
+        // everything but the length first, so the record only becomes visible once complete
+        active.buffer.put(writeOffset + Integer.BYTES, record.array(), Integer.BYTES, HEADER_BYTES - Integer.BYTES + length);
+        active.buffer.putInt(writeOffset, length);
+        writeOffset += HEADER_BYTES + length;
+
+        if (forceEveryWrite) {
+            active.buffer.force();
+        }
+        return position;
+    }
+
+    // must hold the append lock
+    private void roll() {
+        active.buffer.force();
+        try {
+            active = openSegment(active.id + 1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to start a new segment in " + directory, e);
+        }
+        segments.put(active.id, active);
+        writeOffset = 0;
+    }
+
+    private void recover() throws IOException {
+        List<Integer> segmentIds = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach((file) -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segmentIds.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        segmentIds.sort(null);
+
+        if (segmentIds.isEmpty()) {
+            active = openSegment(0);
+            segments.put(active.id, active);
+            writeOffset = 0;
+            return;
+        }
+
+        for (int segmentId : segmentIds) {
+            Segment segment = openSegment(segmentId);
+            segments.put(segmentId, segment);
+            active = segment;
+            writeOffset = scan(segment);
+        }
+    }
+
+    // Indexes the segment's records, returning the offset its valid data ends at
+    private int scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+
+            byte[] body = new byte[length];
+            buffer.get(offset + HEADER_BYTES, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                LOG.warn("Segment {} has a corrupt record at {}, ignoring the rest of it", segment.path, offset);
+                break;
+            }
+
+            int idLength = buffer.getShort(offset + HEADER_BYTES + 9);
+            byte[] id = new byte[idLength];
+            buffer.get(offset + HEADER_BYTES + 11, id);
+            String gameId = new String(id, StandardCharsets.UTF_8);
+            if (buffer.get(offset + HEADER_BYTES) == DROP) {
+                index.remove(gameId);
+            } else {
+                index.put(gameId, position(segment.id, offset));
+            }
+
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    private Segment openSegment(int segmentId) throws IOException {
+        Path path = directory.resolve(String.format("segment-%08d.log", segmentId));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                                          StandardOpenOption.READ,
+                                                          StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return new Segment(segmentId, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private static long position(int segmentId, int offset) {
+        return ((long) segmentId << 32) | offset;
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+}
@@ -0,0 +1,48 @@
+package name.voses.hangman.persistence;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+
+// The outcome of a single guess attempt: the state of the game after the attempt, and
+// why the guess wasn't recorded (if it wasn't).
+public class GuessResult {
+    private static final GuessResult NOT_FOUND = new GuessResult(null, null);
+
+    private final Game game;
+    private final GuessIneligibleReason ineligibleReason;
+
+    public static GuessResult notFound() {
+        return NOT_FOUND;
+    }
+
+    public static GuessResult recorded(Game game) {
+        return new GuessResult(game, null);
+    }
+
+    public static GuessResult ineligible(Game game, GuessIneligibleReason ineligibleReason) {
+        return new GuessResult(game, ineligibleReason);
+    }
+
+    private GuessResult(Game game, GuessIneligibleReason ineligibleReason) {
+        this.game = game;
+        this.ineligibleReason = ineligibleReason;
+    }
+
+    // null when the game doesn't exist
+    public Game getGame() {
+        return this.game;
+    }
+
+    // null when the guess was recorded
+    public GuessIneligibleReason getIneligibleReason() {
+        return this.ineligibleReason;
+    }
+
+    public boolean isFound() {
+        return this.game != null;
+    }
+
+    public boolean isRecorded() {
+        return this.game != null && this.ineligibleReason == null;
+    }
+}
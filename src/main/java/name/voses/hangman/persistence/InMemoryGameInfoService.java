@@ -0,0 +1,230 @@
+package name.voses.hangman.persistence;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Timed;
+import com.devskiller.friendly_id.FriendlyId;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.GuessOutcome;
+import name.voses.hangman.resources.PlayStateEngine;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.resources.WordCatalog;
+import name.voses.hangman.resources.WordIndex;
+
+// Keeps games in process memory only, for single node deployments, benchmarks and tests.
+//
+// Each game has its own lock guarding its PlayStateEngine, so guesses on different games never
+// contend. The latest Game is published through a volatile field, so reads take no lock at all.
+//
+// Games are dropped once they haven't been guessed on for the expiry, and the least recently
+// queued games are dropped when more than maximumGames exist. Both are done off a queue in
+// creation order; a game guessed on since it was queued is queued again when it reaches the
+// front, so the queue stays close to expiry order without touching it on every guess.
+@Timed
+public class InMemoryGameInfoService implements GameInfoService {
+    private static class StoredGame {
+        private final PlayStateEngine engine;
+        private volatile Game current;
+        // when the game was created or last guessed on
+        private volatile long activeAtMillis;
+        // activeAtMillis as of when the game was last queued
+        private volatile long queuedAtMillis;
+
+        private StoredGame(long createdAtMillis, PlayStateEngine engine, Game current) {
+            this.engine = engine;
+            this.current = current;
+            this.activeAtMillis = createdAtMillis;
+            this.queuedAtMillis = createdAtMillis;
+        }
+    }
+
+    private final Map<String, StoredGame> games = new ConcurrentHashMap<>();
+    private final Queue<String> expiryOrder = new ConcurrentLinkedQueue<>();
+
+    private final WordCatalog wordCatalog;
+    private final int maximumGames;
+    private final long expiryMillis;
+    private final LongSupplier clock;
+
+    private final Counter evictions;
+    private final Counter expirations;
+
+    public InMemoryGameInfoService(WordCatalog wordCatalog, int maximumGames, Duration expiry, MetricRegistry metricRegistry) {
+        this(wordCatalog, maximumGames, expiry, metricRegistry, System::currentTimeMillis);
+    }
+
+    InMemoryGameInfoService(WordCatalog wordCatalog, int maximumGames, Duration expiry, MetricRegistry metricRegistry, LongSupplier clock) {
+        this.wordCatalog = wordCatalog;
+        this.maximumGames = maximumGames;
+        this.expiryMillis = expiry.toMillis();
+        this.clock = clock;
+
+        this.evictions = metricRegistry.counter(MetricRegistry.name(InMemoryGameInfoService.class, "evictions"));
+        this.expirations = metricRegistry.counter(MetricRegistry.name(InMemoryGameInfoService.class, "expirations"));
+        metricRegistry.gauge(MetricRegistry.name(InMemoryGameInfoService.class, "games"), () -> (Gauge<Integer>) games::size);
+    }
+
+    @Override
+    public Game createGame(int maxWrongGuesses) {
+        long now = clock.getAsLong();
+        removeExpired(now);
+
+        WordIndex word = wordCatalog.randomWord();
+        PlayStateEngine engine = new PlayStateEngine(word, maxWrongGuesses);
+        Game game = new Game(FriendlyId.createFriendlyId(),
+                             maxWrongGuesses,
+                             word.getWord(),
+                             engine.snapshot());
+
+        games.put(game.getId(), new StoredGame(now, engine, game));
+        expiryOrder.add(game.getId());
+
+        while (games.size() > maximumGames) {
+            String oldest = expiryOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            if (games.remove(oldest) != null) {
+                evictions.inc();
+            }
+        }
+
+        return game;
+    }
+
+    @Override
+    public List<Game> createGames(int count, int maxWrongGuesses) {
+        List<Game> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            games.add(createGame(maxWrongGuesses));
+        }
+        return games;
+    }
+
+    // Like the list_append in the DynamoDB store: the guess is always kept, and interpreting it
+    // (ignoring repeats and anything after the game was lost) is left to the replay
+    @Override
+    public Game storeGuess(Game game, String letter) {
+        StoredGame storedGame = find(game.getId());
+        if (storedGame == null) {
+            return null;
+        }
+
+        synchronized (storedGame) {
+            storedGame.engine.replay(letter.codePointAt(0));
+            return publish(storedGame);
+        }
+    }
+
+    @Override
+    public GuessResult guessLetter(String gameId, String letter) {
+        StoredGame storedGame = find(gameId);
+        if (storedGame == null) {
+            return GuessResult.notFound();
+        }
+
+        synchronized (storedGame) {
+            GuessIneligibleReason ineligibleReason = storedGame.engine.ineligibleToGuessReason(letter.codePointAt(0));
+            if (ineligibleReason != null) {
+                return GuessResult.ineligible(storedGame.current, ineligibleReason);
+            }
+
+            storedGame.engine.replay(letter.codePointAt(0));
+            return GuessResult.recorded(publish(storedGame));
+        }
+    }
+
+    @Override
+    public BatchGuessResult guessLetters(String gameId, List<String> letters) {
+        StoredGame storedGame = find(gameId);
+        if (storedGame == null) {
+            return BatchGuessResult.notFound();
+        }
+
+        synchronized (storedGame) {
+            List<GuessOutcome> outcomes = new ArrayList<>(letters.size());
+            for (String letter : letters) {
+                outcomes.add(storedGame.engine.guess(letter.codePointAt(0)));
+            }
+            return BatchGuessResult.of(publish(storedGame), outcomes);
+        }
+    }
+
+    @Override
+    public Game findGameWithGuesses(String gameId) {
+        StoredGame storedGame = find(gameId);
+        return storedGame == null ? null : storedGame.current;
+    }
+
+    @Override
+    public Map<String, Game> findGamesWithGuesses(Collection<String> gameIds) {
+        Map<String, Game> games = new LinkedHashMap<>();
+        for (String gameId : gameIds) {
+            Game game = findGameWithGuesses(gameId);
+            if (game != null) {
+                games.put(gameId, game);
+            }
+        }
+        return games;
+    }
+
+    private StoredGame find(String gameId) {
+        StoredGame storedGame = games.get(gameId);
+        if (storedGame == null || isExpired(storedGame, clock.getAsLong())) {
+            return null;
+        }
+        return storedGame;
+    }
+
+    // must hold the game's lock
+    private Game publish(StoredGame storedGame) {
+        Game previous = storedGame.current;
+        Game game = new Game(previous.getId(),
+                             previous.getMaxWrongGuesses(),
+                             previous.getWordBeingGuessed(),
+                             storedGame.engine.snapshot());
+        storedGame.current = game;
+        storedGame.activeAtMillis = clock.getAsLong();
+        return game;
+    }
+
+    // like the DynamoDB store with extendExpiryOnGuess, each guess pushes the expiry back
+    private boolean isExpired(StoredGame storedGame, long now) {
+        return now - storedGame.activeAtMillis >= expiryMillis;
+    }
+
+    private void removeExpired(long now) {
+        String oldest;
+        while ((oldest = expiryOrder.peek()) != null) {
+            StoredGame storedGame = games.get(oldest);
+            if (storedGame != null && !isExpired(storedGame, now)) {
+                if (now - storedGame.queuedAtMillis < expiryMillis) {
+                    break;
+                }
+                // guessed on since it was queued, so it expires later than the games behind it
+                if (expiryOrder.remove(oldest)) {
+                    storedGame.queuedAtMillis = storedGame.activeAtMillis;
+                    expiryOrder.add(oldest);
+                }
+                continue;
+            }
+
+            if (expiryOrder.remove(oldest) && storedGame != null && games.remove(oldest, storedGame)) {
+                expirations.inc();
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package name.voses.hangman.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Timed;
+import com.devskiller.friendly_id.FriendlyId;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import name.voses.hangman.persistence.GameLog.GameRecord;
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.GuessOutcome;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.resources.PlayStateEngine;
+import name.voses.hangman.resources.WordCatalog;
+import name.voses.hangman.resources.WordIndex;
+
+// Keeps games in a GameLog on local disk, so a single node survives restarts without a network
+// hop per request.
+//
+// A guess is an append of a few dozen bytes. Checking a guess is eligible and appending it is
+// done under a lock striped by game id, so guesses on different games rarely contend beyond the
+// log's own append lock.
+//
+// Compaction runs in the background: games with records in sealed segments are folded into a
+// single record holding only the guesses that counted, games not guessed on for the expiry are
+// dropped, and the sealed segments deleted.
+@Timed
+public class LocalLogGameInfoService implements GameInfoService, Closeable {
+    private static Logger LOG = LoggerFactory.getLogger(LocalLogGameInfoService.class);
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final GameLog gameLog;
+    private final WordCatalog wordCatalog;
+    private final long expiryMillis;
+    private final LongSupplier clock;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final ScheduledExecutorService compactor;
+
+    private final Counter compactions;
+    private final Counter expirations;
+
+    public LocalLogGameInfoService(WordCatalog wordCatalog, Path directory, int segmentSize, boolean forceEveryWrite,
+                                   Duration expiry, Duration compactionInterval, MetricRegistry metricRegistry) throws IOException {
+        this(wordCatalog, new GameLog(directory, segmentSize, forceEveryWrite), expiry, metricRegistry, System::currentTimeMillis);
+
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (Exception e) {
+                LOG.error("Compacting the game log in {} failed", directory, e);
+            }
+        }, compactionInterval.toMillis(), compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    LocalLogGameInfoService(WordCatalog wordCatalog, GameLog gameLog, Duration expiry, MetricRegistry metricRegistry, LongSupplier clock) {
+        this.gameLog = gameLog;
+        this.wordCatalog = wordCatalog;
+        this.expiryMillis = expiry.toMillis();
+        this.clock = clock;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.compactor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "game-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.compactions = metricRegistry.counter(MetricRegistry.name(LocalLogGameInfoService.class, "compactions"));
+        this.expirations = metricRegistry.counter(MetricRegistry.name(LocalLogGameInfoService.class, "expirations"));
+        metricRegistry.gauge(MetricRegistry.name(LocalLogGameInfoService.class, "games"), () -> (Gauge<Integer>) gameLog::gameCount);
+        metricRegistry.gauge(MetricRegistry.name(LocalLogGameInfoService.class, "segments"), () -> (Gauge<Integer>) gameLog::segmentCount);
+    }
+
+    @Override
+    public Game createGame(int maxWrongGuesses) {
+        WordIndex word = wordCatalog.randomWord();
+        String gameId = FriendlyId.createFriendlyId();
+
+        long now = clock.getAsLong();
+        gameLog.appendGame(new GameRecord(gameId, now, now, maxWrongGuesses, word.getWord(), new int[0]));
+
+        return new Game(gameId, maxWrongGuesses, word.getWord(), new PlayStateEngine(word, maxWrongGuesses).snapshot());
+    }
+
+    @Override
+    public List<Game> createGames(int count, int maxWrongGuesses) {
+        List<Game> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            games.add(createGame(maxWrongGuesses));
+        }
+        return games;
+    }
+
+    // Like the list_append in the DynamoDB store: the guess is always kept, and interpreting it
+    // is left to the replay
+    @Override
+    public Game storeGuess(Game game, String letter) {
+        synchronized (lockFor(game.getId())) {
+            GameRecord record = find(game.getId());
+            if (record == null) {
+                return null;
+            }
+
+            // compaction may have dropped the game since it was read
+            if (!gameLog.appendGuess(record.gameId, letter.codePointAt(0), clock.getAsLong())) {
+                return null;
+            }
+            PlayStateEngine engine = replay(record);
+            engine.replay(letter.codePointAt(0));
+            return toGame(record, engine);
+        }
+    }
+
+    @Override
+    public GuessResult guessLetter(String gameId, String letter) {
+        synchronized (lockFor(gameId)) {
+            GameRecord record = find(gameId);
+            if (record == null) {
+                return GuessResult.notFound();
+            }
+
+            PlayStateEngine engine = replay(record);
+            GuessIneligibleReason ineligibleReason = engine.ineligibleToGuessReason(letter.codePointAt(0));
+            if (ineligibleReason != null) {
+                return GuessResult.ineligible(toGame(record, engine), ineligibleReason);
+            }
+
+            if (!gameLog.appendGuess(gameId, letter.codePointAt(0), clock.getAsLong())) {
+                return GuessResult.notFound();
+            }
+            engine.replay(letter.codePointAt(0));
+            return GuessResult.recorded(toGame(record, engine));
+        }
+    }
+
+    @Override
+    public BatchGuessResult guessLetters(String gameId, List<String> letters) {
+        synchronized (lockFor(gameId)) {
+            GameRecord record = find(gameId);
+            if (record == null) {
+                return BatchGuessResult.notFound();
+            }
+
+            PlayStateEngine engine = replay(record);
+            List<GuessOutcome> outcomes = new ArrayList<>(letters.size());
+            for (String letter : letters) {
+                GuessOutcome outcome = engine.guess(letter.codePointAt(0));
+                if ((outcome == GuessOutcome.HIT || outcome == GuessOutcome.MISS) &&
+                        !gameLog.appendGuess(gameId, letter.codePointAt(0), clock.getAsLong())) {
+                    return BatchGuessResult.notFound();
+                }
+                outcomes.add(outcome);
+            }
+            return BatchGuessResult.of(toGame(record, engine), outcomes);
+        }
+    }
+
+    @Override
+    public Game findGameWithGuesses(String gameId) {
+        GameRecord record = find(gameId);
+        return record == null ? null : toGame(record, replay(record));
+    }
+
+    @Override
+    public Map<String, Game> findGamesWithGuesses(Collection<String> gameIds) {
+        Map<String, Game> games = new LinkedHashMap<>();
+        for (String gameId : gameIds) {
+            Game game = findGameWithGuesses(gameId);
+            if (game != null) {
+                games.put(gameId, game);
+            }
+        }
+        return games;
+    }
+
+    void compact() throws IOException {
+        long now = clock.getAsLong();
+        gameLog.compact((record) -> {
+            if (isExpired(record, now)) {
+                expirations.inc();
+                return null;
+            }
+
+            // only keep the guesses the replay actually applied
+            PlayStateEngine engine = new PlayStateEngine(wordCatalog.indexFor(record.word), record.maxWrongGuesses);
+            int[] applied = new int[record.guesses.length];
+            int appliedCount = 0;
+            for (int guess : record.guesses) {
+                GuessOutcome outcome = engine.replay(guess);
+                if (outcome == GuessOutcome.HIT || outcome == GuessOutcome.MISS) {
+                    applied[appliedCount++] = guess;
+                }
+            }
+            return new GameRecord(record.gameId, record.createdAtMillis, record.activeAtMillis, record.maxWrongGuesses,
+                                  record.word, Arrays.copyOf(applied, appliedCount));
+        });
+        compactions.inc();
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        gameLog.close();
+    }
+
+    private GameRecord find(String gameId) {
+        GameRecord record = gameLog.read(gameId);
+        if (record == null || isExpired(record, clock.getAsLong())) {
+            return null;
+        }
+        return record;
+    }
+
+    // like the DynamoDB store with extendExpiryOnGuess, each guess pushes the expiry back
+    private boolean isExpired(GameRecord record, long now) {
+        return now - record.activeAtMillis >= expiryMillis;
+    }
+
+    private PlayStateEngine replay(GameRecord record) {
+        PlayStateEngine engine = new PlayStateEngine(wordCatalog.indexFor(record.word), record.maxWrongGuesses);
+        for (int guess : record.guesses) {
+            engine.replay(guess);
+        }
+        return engine;
+    }
+
+    private Game toGame(GameRecord record, PlayStateEngine engine) {
+        return new Game(record.gameId, record.maxWrongGuesses, record.word, engine.snapshot());
+    }
+
+    private Object lockFor(String gameId) {
+        return locks[(gameId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+}
@@ -0,0 +1,89 @@
+package name.voses.hangman.persistence;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import name.voses.hangman.resources.Game;
+
+// Hands the state resulting from every guess made through another GameInfoService to a
+// listener. Ineligible guesses hand back the unchanged state too, listeners are expected to
+// skip states they've already seen.
+public class NotifyingGameInfoService implements GameInfoService {
+    private final GameInfoService delegate;
+    private final Consumer<Game> listener;
+
+    public NotifyingGameInfoService(GameInfoService delegate, Consumer<Game> listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public Game createGame(int maxWrongGuesses) {
+        return delegate.createGame(maxWrongGuesses);
+    }
+
+    @Override
+    public List<Game> createGames(int count, int maxWrongGuesses) {
+        return delegate.createGames(count, maxWrongGuesses);
+    }
+
+    @Override
+    public Game storeGuess(Game game, String letter) {
+        Game updatedGame = delegate.storeGuess(game, letter);
+        if (updatedGame != null) {
+            listener.accept(updatedGame);
+        }
+        return updatedGame;
+    }
+
+    @Override
+    public GuessResult guessLetter(String gameId, String letter) {
+        GuessResult result = delegate.guessLetter(gameId, letter);
+        if (result.isFound()) {
+            listener.accept(result.getGame());
+        }
+        return result;
+    }
+
+    @Override
+    public BatchGuessResult guessLetters(String gameId, List<String> letters) {
+        BatchGuessResult result = delegate.guessLetters(gameId, letters);
+        if (result.isFound()) {
+            listener.accept(result.getGame());
+        }
+        return result;
+    }
+
+    @Override
+    public Game findGameWithGuesses(String gameId) {
+        return delegate.findGameWithGuesses(gameId);
+    }
+
+    @Override
+    public Map<String, Game> findGamesWithGuesses(Collection<String> gameIds) {
+        return delegate.findGamesWithGuesses(gameIds);
+    }
+
+    @Override
+    public CompletableFuture<Game> createGameAsync(int maxWrongGuesses) {
+        return delegate.createGameAsync(maxWrongGuesses);
+    }
+
+    @Override
+    public CompletableFuture<GuessResult> guessLetterAsync(String gameId, String letter) {
+        return delegate.guessLetterAsync(gameId, letter).thenApply((result) -> {
+            if (result.isFound()) {
+                listener.accept(result.getGame());
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Game> findGameWithGuessesAsync(String gameId) {
+        return delegate.findGameWithGuessesAsync(gameId);
+    }
+}
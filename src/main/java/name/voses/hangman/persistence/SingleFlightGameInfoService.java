@@ -0,0 +1,145 @@
+package name.voses.hangman.persistence;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import name.voses.hangman.resources.Game;
+
+// Issues at most one read per game at a time: callers reading a game that's already being read
+// wait for that read and share its result (or its failure) instead of issuing their own.
+//
+// A read is only shared with callers that arrived while it was in flight, nothing is kept once
+// it completes. Every guess made through here, once applied, also stops the read in flight for
+// that game from being handed to anyone else, so a caller reading after its own guess (like the
+// reload after storeGuess) always gets a read issued after the write.
+public class SingleFlightGameInfoService implements GameInfoService {
+    private final GameInfoService delegate;
+
+    private final Map<String, CompletableFuture<Game>> reads = new ConcurrentHashMap<>();
+
+    private final Counter issued;
+    private final Counter shared;
+
+    public SingleFlightGameInfoService(GameInfoService delegate, MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+
+        this.issued = metricRegistry.counter(MetricRegistry.name(SingleFlightGameInfoService.class, "issued"));
+        this.shared = metricRegistry.counter(MetricRegistry.name(SingleFlightGameInfoService.class, "shared"));
+    }
+
+    @Override
+    public Game createGame(int maxWrongGuesses) {
+        return delegate.createGame(maxWrongGuesses);
+    }
+
+    @Override
+    public List<Game> createGames(int count, int maxWrongGuesses) {
+        return delegate.createGames(count, maxWrongGuesses);
+    }
+
+    @Override
+    public Game storeGuess(Game game, String letter) {
+        try {
+            return delegate.storeGuess(game, letter);
+        } finally {
+            reads.remove(game.getId());
+        }
+    }
+
+    @Override
+    public GuessResult guessLetter(String gameId, String letter) {
+        try {
+            return delegate.guessLetter(gameId, letter);
+        } finally {
+            reads.remove(gameId);
+        }
+    }
+
+    @Override
+    public BatchGuessResult guessLetters(String gameId, List<String> letters) {
+        try {
+            return delegate.guessLetters(gameId, letters);
+        } finally {
+            reads.remove(gameId);
+        }
+    }
+
+    @Override
+    public Game findGameWithGuesses(String gameId) {
+        CompletableFuture<Game> read = new CompletableFuture<>();
+        CompletableFuture<Game> inFlight = reads.putIfAbsent(gameId, read);
+        if (inFlight != null) {
+            shared.inc();
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        issued.inc();
+        try {
+            Game game = delegate.findGameWithGuesses(gameId);
+            reads.remove(gameId, read);
+            read.complete(game);
+            return game;
+        } catch (RuntimeException | Error e) {
+            reads.remove(gameId, read);
+            read.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<String, Game> findGamesWithGuesses(Collection<String> gameIds) {
+        return delegate.findGamesWithGuesses(gameIds);
+    }
+
+    @Override
+    public CompletableFuture<Game> createGameAsync(int maxWrongGuesses) {
+        return delegate.createGameAsync(maxWrongGuesses);
+    }
+
+    @Override
+    public CompletableFuture<GuessResult> guessLetterAsync(String gameId, String letter) {
+        return delegate.guessLetterAsync(gameId, letter).whenComplete((result, e) -> reads.remove(gameId));
+    }
+
+    @Override
+    public CompletableFuture<Game> findGameWithGuessesAsync(String gameId) {
+        CompletableFuture<Game> read = new CompletableFuture<>();
+        CompletableFuture<Game> inFlight = reads.putIfAbsent(gameId, read);
+        if (inFlight != null) {
+            shared.inc();
+            // a copy, so callers can't complete the shared read for each other
+            return inFlight.copy();
+        }
+
+        issued.inc();
+        CompletableFuture<Game> delegateRead;
+        try {
+            delegateRead = delegate.findGameWithGuessesAsync(gameId);
+        } catch (RuntimeException e) {
+            delegateRead = CompletableFuture.failedFuture(e);
+        }
+        delegateRead.whenComplete((game, e) -> {
+            reads.remove(gameId, read);
+            if (e != null) {
+                read.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            } else {
+                read.complete(game);
+            }
+        });
+        return read.copy();
+    }
+}
@@ -1,10 +1,12 @@
 package name.voses.hangman.resources;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.swagger.v3.oas.annotations.media.Schema;
 import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
 
 @Schema(description = "Information about a game")
+@JsonSerialize(using = GameJsonSerializers.GameSerializer.class)
 public class Game {
     private String id;
     private int maxWrongGuesses;
@@ -0,0 +1,145 @@
+package name.voses.hangman.resources;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+// Writes games straight from the code points PlayState keeps, in the same format the bean
+// properties would produce, without building a LetterState per letter on the way. Field names
+// and ASCII letters are encoded once up front.
+//
+// The getters keep their @Schema annotations, they're still what the API docs are built from.
+public class GameJsonSerializers {
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString MAX_WRONG_GUESSES = new SerializedString("maxWrongGuesses");
+    private static final SerializableString PLAY_STATE = new SerializedString("playState");
+    private static final SerializableString WORD_LENGTH = new SerializedString("wordLength");
+    private static final SerializableString REMAINING_WRONG_GUESSES = new SerializedString("remainingWrongGuesses");
+    private static final SerializableString MASKED_WORD = new SerializedString("maskedWord");
+    private static final SerializableString MISSED_GUESSES = new SerializedString("missedGuesses");
+    private static final SerializableString LETTER = new SerializedString("letter");
+
+    // the compact play state sent over game play sockets
+    private static final SerializableString COMPACT_VERSION = new SerializedString("v");
+    private static final SerializableString COMPACT_REMAINING_WRONG_GUESSES = new SerializedString("r");
+    private static final SerializableString COMPACT_MASKED_WORD = new SerializedString("m");
+    private static final SerializableString COMPACT_MISSED_GUESSES = new SerializedString("x");
+
+    private static final SerializableString[] ASCII_LETTERS = new SerializableString[128];
+    static {
+        for (int codePoint = 0; codePoint < ASCII_LETTERS.length; codePoint++) {
+            ASCII_LETTERS[codePoint] = new SerializedString(String.valueOf((char) codePoint));
+        }
+    }
+
+    public static class GameSerializer extends StdSerializer<Game> {
+        public GameSerializer() {
+            super(Game.class);
+        }
+
+        @Override
+        public void serialize(Game game, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(game);
+            gen.writeFieldName(ID);
+            gen.writeString(game.getId());
+            gen.writeFieldName(MAX_WRONG_GUESSES);
+            gen.writeNumber(game.getMaxWrongGuesses());
+            gen.writeFieldName(PLAY_STATE);
+            if (game.getPlayState() == null) {
+                gen.writeNull();
+            } else {
+                writePlayState(game.getPlayState(), gen);
+            }
+            gen.writeFieldName(WORD_LENGTH);
+            gen.writeNumber(game.getWordLength());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class PlayStateSerializer extends StdSerializer<PlayState> {
+        public PlayStateSerializer() {
+            super(PlayState.class);
+        }
+
+        @Override
+        public void serialize(PlayState playState, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            writePlayState(playState, gen);
+        }
+    }
+
+    public static class LetterStateSerializer extends StdSerializer<LetterState> {
+        public LetterStateSerializer() {
+            super(LetterState.class);
+        }
+
+        @Override
+        public void serialize(LetterState letterState, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName(LETTER);
+            if (letterState.getLetter() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeString(letterState.getLetter());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    // {"v":<letters guessed>,"r":<remaining wrong guesses>,"m":[<letter, null if not guessed yet>],"x":[<letter>]}
+    public static void writeCompactPlayState(PlayState playState, JsonGenerator gen) throws IOException {
+        gen.writeStartObject(playState);
+        gen.writeFieldName(COMPACT_VERSION);
+        gen.writeNumber(playState.getGuessedLetterCount());
+        gen.writeFieldName(COMPACT_REMAINING_WRONG_GUESSES);
+        gen.writeNumber(playState.getRemainingWrongGuesses());
+        gen.writeFieldName(COMPACT_MASKED_WORD);
+        writeCompactLetters(playState.maskedCodePoints(), gen);
+        gen.writeFieldName(COMPACT_MISSED_GUESSES);
+        writeCompactLetters(playState.missedCodePoints(), gen);
+        gen.writeEndObject();
+    }
+
+    private static void writePlayState(PlayState playState, JsonGenerator gen) throws IOException {
+        gen.writeStartObject(playState);
+        gen.writeFieldName(REMAINING_WRONG_GUESSES);
+        gen.writeNumber(playState.getRemainingWrongGuesses());
+        gen.writeFieldName(MASKED_WORD);
+        writeLetters(playState.maskedCodePoints(), gen);
+        gen.writeFieldName(MISSED_GUESSES);
+        writeLetters(playState.missedCodePoints(), gen);
+        gen.writeEndObject();
+    }
+
+    private static void writeLetters(int[] codePoints, JsonGenerator gen) throws IOException {
+        gen.writeStartArray(codePoints.length);
+        for (int codePoint : codePoints) {
+            gen.writeStartObject();
+            gen.writeFieldName(LETTER);
+            writeLetter(codePoint, gen);
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeCompactLetters(int[] codePoints, JsonGenerator gen) throws IOException {
+        gen.writeStartArray(codePoints.length);
+        for (int codePoint : codePoints) {
+            writeLetter(codePoint, gen);
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeLetter(int codePoint, JsonGenerator gen) throws IOException {
+        if (codePoint == PlayState.PLACEHOLDER) {
+            gen.writeNull();
+        } else if (codePoint < ASCII_LETTERS.length) {
+            gen.writeString(ASCII_LETTERS[codePoint]);
+        } else {
+            gen.writeString(PlayState.codePointToString(codePoint));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package name.voses.hangman.resources;
+
+// What applying a single guess did to a game
+public enum GuessOutcome {
+    HIT,
+    MISS,
+    // already guessed, nothing changed
+    REPEAT,
+    // the game was already finished, nothing changed
+    INELIGIBLE
+}
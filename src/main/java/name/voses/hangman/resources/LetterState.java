@@ -1,24 +1,57 @@
 package name.voses.hangman.resources;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(description = "Information about a guessed or not yet guessed letter in the game")
+@JsonSerialize(using = GameJsonSerializers.LetterStateSerializer.class)
 public class LetterState {
-    public static LetterState EMPTY_STATE = new LetterState();
+    public static final LetterState EMPTY_STATE = new LetterState();
 
-    private String letter;
+    // Guessed letters come from a small alphabet, so one shared state per code point is handed
+    // out instead of a new one for every letter of every response. Code points below 0x800
+    // (Latin, Greek, Cyrillic, Hebrew, Arabic...) sit in an array filled on first use, the rest
+    // in a map that stops taking new ones once full. The states are immutable, so a race filling
+    // a slot only costs a duplicate.
+    private static final int DENSE_LIMIT = 0x800;
+    private static final int MAX_SPARSE_LETTERS = 4096;
+    private static final LetterState[] DENSE_LETTERS = new LetterState[DENSE_LIMIT];
+    private static final Map<Integer, LetterState> SPARSE_LETTERS = new ConcurrentHashMap<>();
 
+    private final String letter;
 
-    public static LetterState fromCodePoint(Integer guess) {
-		return new LetterState(new String(new int[] { guess }, 0, 1));
-    }
+    public static LetterState fromCodePoint(int codePoint) {
+        if (codePoint >= 0 && codePoint < DENSE_LIMIT) {
+            LetterState letterState = DENSE_LETTERS[codePoint];
+            if (letterState == null) {
+                letterState = new LetterState(new String(new int[] { codePoint }, 0, 1));
+                DENSE_LETTERS[codePoint] = letterState;
+            }
+            return letterState;
+        }
 
+        LetterState letterState = SPARSE_LETTERS.get(codePoint);
+        if (letterState == null) {
+            letterState = new LetterState(new String(new int[] { codePoint }, 0, 1));
+            if (SPARSE_LETTERS.size() < MAX_SPARSE_LETTERS) {
+                LetterState existing = SPARSE_LETTERS.putIfAbsent(codePoint, letterState);
+                if (existing != null) {
+                    letterState = existing;
+                }
+            }
+        }
+        return letterState;
+    }
 
-    public LetterState() { }
+    public LetterState() {
+        this(null);
+    }
 
     public LetterState(String letter) {
         this.letter = letter;
@@ -1,17 +1,17 @@
 package name.voses.hangman.resources;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(description = "The state of the game being played including information about guesses")
+@JsonSerialize(using = GameJsonSerializers.PlayStateSerializer.class)
 public class PlayState {
     public static enum GuessIneligibleReason {
         TOO_MANY_WRONG_GUESSES,
@@ -19,73 +19,55 @@ public class PlayState {
         ALREADY_WON
     }
 
-    private int remainingWrongGuesses;
-    private List<LetterState> maskedWord;
-    private List<LetterState> missedGuesses;
-
-    public static PlayState build(int maxWrongGuesses, String[] guesses, String wordBeingGuessed) {
-        Set<Integer> guessLetterCodePoints = Arrays.stream(guesses)
-                                                    .map(s -> s.codePointAt(0))
-                                                    // LinkedHashSet to ensure order is kept
-                                                    .collect(Collectors.toCollection(LinkedHashSet::new));
-        LinkedHashSet<Integer> missedGuesses = new LinkedHashSet<Integer>();
-
-        LetterState[] maskedWord = new LetterState[wordBeingGuessed.length()];
-        Arrays.fill(maskedWord, LetterState.EMPTY_STATE);
-
-        Map<Integer, List<Integer>> codePointToWordLocations = new HashMap<>(wordBeingGuessed.length());
+    // stands in for a letter that hasn't been guessed yet in maskedCodePoints
+    public static final int PLACEHOLDER = -1;
 
-        for (int i = 0; i < wordBeingGuessed.length(); i++) {
-            int codePoint = wordBeingGuessed.codePointAt(i);
+    private final int remainingWrongGuesses;
+    private final int[] maskedCodePoints;
+    private final int[] missedCodePoints;
+    // sorted, for binary searching in ineligibleToGuessReason
+    private final int[] guessedCodePoints;
+    private final boolean gameWon;
 
-            List<Integer> locations = codePointToWordLocations.get(codePoint);
-            if (locations == null) {
-                // LinkedList gives O(1) insert and we only ever sequentially access the list
-                locations = new LinkedList<>();
-                codePointToWordLocations.put(codePoint, locations);
-            }
-            locations.add(i);
-        }
-
-        for (Integer guess : guessLetterCodePoints) {
-            List<Integer> locations = codePointToWordLocations.get(guess);
-            if (locations != null) {
-                final LetterState guessLetterState = LetterState.fromCodePoint(guess);
-                locations.forEach((location) -> maskedWord[location] = guessLetterState);
-            } else {
-                missedGuesses.add(guess);
-            }
+    public static PlayState build(int maxWrongGuesses, String[] guesses, String wordBeingGuessed) {
+        return build(maxWrongGuesses, guesses, WordIndex.of(wordBeingGuessed));
+    }
 
-            // account for us getting into a state of:
-            // word = "abcd"
-            // guesses = ["a", "b", "c", <too many bad guesses>, "d" ]
-            if (missedGuesses.size() >= maxWrongGuesses) {
-                break;
-            }
+    public static PlayState build(int maxWrongGuesses, String[] guesses, WordIndex word) {
+        PlayStateEngine engine = new PlayStateEngine(word, maxWrongGuesses);
+        for (String guess : guesses) {
+            engine.replay(guess.codePointAt(0));
         }
-
-        int remainingWrongGuesses = maxWrongGuesses - missedGuesses.size();
-        List<LetterState> missedGuessLetterStates =
-                                missedGuesses.stream()
-                                              .map(PlayState::codePointToString)
-                                              .map(LetterState::new)
-                                              .collect(Collectors.toList());
-
-        return new PlayState(remainingWrongGuesses, missedGuessLetterStates, Arrays.asList(maskedWord));
+        return engine.snapshot();
     }
 
-    private static boolean includesLetter(final List<LetterState> letters, final String letter) {
-        return letters.stream().anyMatch((l) -> l.isForLetter(letter));
+    // shared with LetterState's, so this doesn't allocate for letters seen before
+    public static String codePointToString(int codePoint) {
+        return LetterState.fromCodePoint(codePoint).getLetter();
     }
 
-    private static String codePointToString(int codePoint) {
-        return new String(new int[] { codePoint }, 0, 1);
+    public PlayState(int remainingWrongGuesses, List<LetterState> missedGuesses, List<LetterState> maskedWord) {
+        this.remainingWrongGuesses = remainingWrongGuesses;
+        this.maskedCodePoints = maskedWord.stream()
+                                          .mapToInt((l) -> l.isFilled() ? l.getLetter().codePointAt(0) : PLACEHOLDER)
+                                          .toArray();
+        this.missedCodePoints = missedGuesses.stream()
+                                             .mapToInt((l) -> l.getLetter().codePointAt(0))
+                                             .toArray();
+        this.guessedCodePoints = IntStream.concat(Arrays.stream(this.maskedCodePoints), Arrays.stream(this.missedCodePoints))
+                                          .filter((c) -> c != PLACEHOLDER)
+                                          .distinct()
+                                          .sorted()
+                                          .toArray();
+        this.gameWon = Arrays.stream(this.maskedCodePoints).noneMatch((c) -> c == PLACEHOLDER);
     }
 
-    public PlayState(int remainingWrongGuesses, List<LetterState> missedGuesses, List<LetterState> maskedWord) {
+    PlayState(int remainingWrongGuesses, int[] maskedCodePoints, int[] missedCodePoints, int[] guessedCodePoints, boolean gameWon) {
         this.remainingWrongGuesses = remainingWrongGuesses;
-        this.missedGuesses = missedGuesses;
-        this.maskedWord = maskedWord;
+        this.maskedCodePoints = maskedCodePoints;
+        this.missedCodePoints = missedCodePoints;
+        this.guessedCodePoints = guessedCodePoints;
+        this.gameWon = gameWon;
     }
 
     @Schema(description = "How many more wrong guesses before the game would be failed")
@@ -95,18 +77,59 @@ public class PlayState {
 
     @Schema(description = "The actual word being guessed, with placeholders for letters that have not yet been guessed")
     public List<LetterState> getMaskedWord() {
-        return this.maskedWord;
+        List<LetterState> maskedWord = new ArrayList<>(maskedCodePoints.length);
+        for (int codePoint : maskedCodePoints) {
+            maskedWord.add(codePoint == PLACEHOLDER ? LetterState.EMPTY_STATE : LetterState.fromCodePoint(codePoint));
+        }
+        return maskedWord;
     }
 
     @Schema(description = "An array of the letters which were guessed (possibly unicode)")
     public List<LetterState> getMissedGuesses() {
-        return this.missedGuesses;
+        List<LetterState> missedGuesses = new ArrayList<>(missedCodePoints.length);
+        for (int codePoint : missedCodePoints) {
+            missedGuesses.add(LetterState.fromCodePoint(codePoint));
+        }
+        return missedGuesses;
+    }
+
+    // for GameJsonSerializers, which writes these without going through LetterState
+    int[] maskedCodePoints() {
+        return this.maskedCodePoints;
+    }
+
+    int[] missedCodePoints() {
+        return this.missedCodePoints;
+    }
+
+    // Whether the letter was guessed and isn't in the word
+    public boolean isMissed(int codePoint) {
+        for (int missedCodePoint : missedCodePoints) {
+            if (missedCodePoint == codePoint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // How many distinct letters have been guessed, this only ever grows over a game
+    @JsonIgnore
+    public int getGuessedLetterCount() {
+        return this.guessedCodePoints.length;
+    }
+
+    @JsonIgnore
+    public boolean isGameWon() {
+        return this.gameWon;
     }
 
     public GuessIneligibleReason ineligibleToGuessReason(String guessedLetter) {
-        // TODO: if desired we could have the guessed letters stored in a set to speed up this check
-        boolean alreadyGuessed = includesLetter(maskedWord, guessedLetter) ||
-                                    includesLetter(missedGuesses, guessedLetter);
+        boolean alreadyGuessed = false;
+        if (!guessedLetter.isEmpty()) {
+            int codePoint = guessedLetter.codePointAt(0);
+            alreadyGuessed = guessedLetter.length() == Character.charCount(codePoint) &&
+                                Arrays.binarySearch(guessedCodePoints, codePoint) >= 0;
+        }
 
         if (alreadyGuessed) {
             return GuessIneligibleReason.REPEAT;
@@ -118,8 +141,4 @@ public class PlayState {
 
         return null;
     }
-
-    private boolean isGameWon() {
-        return this.getMaskedWord().stream().allMatch(LetterState::isFilled);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,188 @@
+package name.voses.hangman.resources;
+
+import java.util.Arrays;
+
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+
+// Mutable, incrementally updated state of a game. Applying a guess costs a lookup in the guessed
+// letters plus work proportional to the positions it reveals; nothing is rebuilt.
+//
+// Not thread safe, callers sharing an engine need to guard it. snapshot() produces the
+// immutable PlayState handed out to everyone else.
+public class PlayStateEngine {
+    private static final int[] NO_CODE_POINTS = new int[0];
+
+    private final WordIndex word;
+    private final int maxWrongGuesses;
+
+    private final int[] maskedCodePoints;
+    private int revealedPositions;
+
+    // ASCII guesses are tracked in a 128 bit set, anything else in a sorted array
+    private long guessedAsciiLow;
+    private long guessedAsciiHigh;
+    private int[] guessedOther = NO_CODE_POINTS;
+    private int guessedOtherCount;
+    private int guessedCount;
+
+    private int[] missed = NO_CODE_POINTS;
+    private int missedCount;
+
+    // set once enough wrong guesses were seen, after which replayed guesses are ignored
+    private boolean stopped;
+
+    public PlayStateEngine(WordIndex word, int maxWrongGuesses) {
+        this.word = word;
+        this.maxWrongGuesses = maxWrongGuesses;
+        this.maskedCodePoints = new int[word.length()];
+        Arrays.fill(this.maskedCodePoints, PlayState.PLACEHOLDER);
+    }
+
+    private PlayStateEngine(PlayStateEngine other) {
+        this.word = other.word;
+        this.maxWrongGuesses = other.maxWrongGuesses;
+        this.maskedCodePoints = other.maskedCodePoints.clone();
+        this.revealedPositions = other.revealedPositions;
+        this.guessedAsciiLow = other.guessedAsciiLow;
+        this.guessedAsciiHigh = other.guessedAsciiHigh;
+        this.guessedOther = Arrays.copyOf(other.guessedOther, other.guessedOtherCount);
+        this.guessedOtherCount = other.guessedOtherCount;
+        this.guessedCount = other.guessedCount;
+        this.missed = Arrays.copyOf(other.missed, other.missedCount);
+        this.missedCount = other.missedCount;
+        this.stopped = other.stopped;
+    }
+
+    public PlayStateEngine copy() {
+        return new PlayStateEngine(this);
+    }
+
+    public WordIndex getWord() {
+        return this.word;
+    }
+
+    public int getMaxWrongGuesses() {
+        return this.maxWrongGuesses;
+    }
+
+    // Applies a guess the way stored guesses are interpreted: repeats are ignored, and once the
+    // game has run out of wrong guesses anything after is ignored. Guesses stored after a win
+    // still count (they can only get there through a race between two writers).
+    public GuessOutcome replay(int codePoint) {
+        if (stopped) {
+            return GuessOutcome.INELIGIBLE;
+        }
+        if (isGuessed(codePoint)) {
+            return GuessOutcome.REPEAT;
+        }
+
+        markGuessed(codePoint);
+
+        GuessOutcome outcome;
+        int letterIndex = word.letterIndex(codePoint);
+        if (letterIndex >= 0) {
+            for (int i = word.positionsStart(letterIndex); i < word.positionsEnd(letterIndex); i++) {
+                maskedCodePoints[word.position(i)] = codePoint;
+            }
+            revealedPositions += word.positionsEnd(letterIndex) - word.positionsStart(letterIndex);
+            outcome = GuessOutcome.HIT;
+        } else {
+            if (missedCount == missed.length) {
+                missed = Arrays.copyOf(missed, Math.max(4, missedCount * 2));
+            }
+            missed[missedCount++] = codePoint;
+            outcome = GuessOutcome.MISS;
+        }
+
+        // account for us getting into a state of:
+        // word = "abcd"
+        // guesses = ["a", "b", "c", <too many bad guesses>, "d" ]
+        if (missedCount >= maxWrongGuesses) {
+            stopped = true;
+        }
+
+        return outcome;
+    }
+
+    // Applies a new guess from a player, only if the game is eligible for it
+    public GuessOutcome guess(int codePoint) {
+        GuessIneligibleReason ineligibleReason = ineligibleToGuessReason(codePoint);
+        if (ineligibleReason == GuessIneligibleReason.REPEAT) {
+            return GuessOutcome.REPEAT;
+        } else if (ineligibleReason != null) {
+            return GuessOutcome.INELIGIBLE;
+        }
+
+        return replay(codePoint);
+    }
+
+    public GuessIneligibleReason ineligibleToGuessReason(int codePoint) {
+        if (isGuessed(codePoint)) {
+            return GuessIneligibleReason.REPEAT;
+        } else if (getRemainingWrongGuesses() < 1) {
+            return GuessIneligibleReason.TOO_MANY_WRONG_GUESSES;
+        } else if (isGameWon()) {
+            return GuessIneligibleReason.ALREADY_WON;
+        }
+
+        return null;
+    }
+
+    public int getRemainingWrongGuesses() {
+        return maxWrongGuesses - missedCount;
+    }
+
+    public boolean isGameWon() {
+        return revealedPositions == maskedCodePoints.length;
+    }
+
+    public boolean isGuessed(int codePoint) {
+        if (codePoint < 64) {
+            return (guessedAsciiLow & (1L << codePoint)) != 0;
+        } else if (codePoint < 128) {
+            return (guessedAsciiHigh & (1L << (codePoint - 64))) != 0;
+        }
+        return Arrays.binarySearch(guessedOther, 0, guessedOtherCount, codePoint) >= 0;
+    }
+
+    public PlayState snapshot() {
+        return new PlayState(getRemainingWrongGuesses(),
+                             maskedCodePoints.clone(),
+                             Arrays.copyOf(missed, missedCount),
+                             guessedCodePoints(),
+                             isGameWon());
+    }
+
+    private void markGuessed(int codePoint) {
+        guessedCount++;
+        if (codePoint < 64) {
+            guessedAsciiLow |= 1L << codePoint;
+            return;
+        } else if (codePoint < 128) {
+            guessedAsciiHigh |= 1L << (codePoint - 64);
+            return;
+        }
+
+        int insertAt = -(Arrays.binarySearch(guessedOther, 0, guessedOtherCount, codePoint) + 1);
+        if (guessedOtherCount == guessedOther.length) {
+            guessedOther = Arrays.copyOf(guessedOther, Math.max(4, guessedOtherCount * 2));
+        }
+        System.arraycopy(guessedOther, insertAt, guessedOther, insertAt + 1, guessedOtherCount - insertAt);
+        guessedOther[insertAt] = codePoint;
+        guessedOtherCount++;
+    }
+
+    // all guessed code points in ascending order
+    private int[] guessedCodePoints() {
+        int[] guessed = new int[guessedCount];
+        int count = 0;
+        for (long bits = guessedAsciiLow; bits != 0; bits &= bits - 1) {
+            guessed[count++] = Long.numberOfTrailingZeros(bits);
+        }
+        for (long bits = guessedAsciiHigh; bits != 0; bits &= bits - 1) {
+            guessed[count++] = 64 + Long.numberOfTrailingZeros(bits);
+        }
+        System.arraycopy(guessedOther, 0, guessed, count, guessedOtherCount);
+        return guessed;
+    }
+}
@@ -0,0 +1,197 @@
+package name.voses.hangman.resources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// The words games can be played with, compiled once into the lookup tables PlayStateEngine uses.
+//
+// Every word's WordIndex tables are packed end to end into a handful of shared arrays (rather
+// than a few small arrays per word) to keep the per-word overhead down to its actual data.
+// WordIndex instances handed out are just views over a slice of them.
+//
+// Words are stored sorted (by the code point at each position), so looking up the index for an
+// existing game's word is a binary search with no extra map.
+//
+// Words are kept verbatim, since a game stores its word and looks it up again by it. Blank
+// entries are skipped, but a word with leading or trailing whitespace is refused rather than
+// trimmed: it's almost certainly a config mistake, and trimming it would play a different word
+// than the one configured.
+public final class WordCatalog {
+    private static final Comparator<String> WORD_ORDER = WordCatalog::compareWords;
+
+    private final int[] wordStarts;
+    private final int[] codePoints;
+    private final int[] positionLetters;
+    private final int[] positions;
+
+    // a word's letters start at letterOffsets[w], its letterStarts at letterOffsets[w] + w
+    // (each word has one more letterStarts entry than it has letters)
+    private final int[] letterOffsets;
+    private final int[] letters;
+    private final int[] letterStarts;
+
+    private final long[] letterMasks;
+
+    public static WordCatalog compile(Collection<String> words) {
+        List<String> sortedWords = new ArrayList<>(words.size());
+        for (String word : words) {
+            if (word.isBlank()) {
+                continue;
+            }
+            if (!word.strip().equals(word)) {
+                throw new IllegalArgumentException("Word has leading or trailing whitespace: \"" + word + "\"");
+            }
+            sortedWords.add(word);
+        }
+        sortedWords.sort(WORD_ORDER);
+
+        int wordCount = 0;
+        int positionCount = 0;
+        for (int i = 0; i < sortedWords.size(); i++) {
+            if (i == 0 || !sortedWords.get(i).equals(sortedWords.get(i - 1))) {
+                sortedWords.set(wordCount++, sortedWords.get(i));
+                positionCount += sortedWords.get(i).length();
+            }
+        }
+
+        int[] wordStarts = new int[wordCount + 1];
+        int[] codePoints = new int[positionCount];
+        int[] positionLetters = new int[positionCount];
+        int[] positions = new int[positionCount];
+        int[] letterOffsets = new int[wordCount + 1];
+        long[] letterMasks = new long[wordCount];
+        int[] letters = new int[positionCount];
+        int[] letterStarts = new int[positionCount + wordCount];
+
+        int letterCount = 0;
+        for (int w = 0; w < wordCount; w++) {
+            WordIndex index = WordIndex.of(sortedWords.get(w));
+            int positionBase = wordStarts[w];
+            for (int i = 0; i < index.length(); i++) {
+                codePoints[positionBase + i] = index.codePointAt(i);
+                positionLetters[positionBase + i] = index.letterAtPosition(i);
+                positions[positionBase + i] = index.position(i);
+            }
+            wordStarts[w + 1] = positionBase + index.length();
+
+            for (int l = 0; l < index.letterCount(); l++) {
+                letters[letterCount + l] = index.letter(l);
+                letterStarts[letterCount + w + l] = index.positionsStart(l);
+            }
+            letterStarts[letterCount + w + index.letterCount()] = index.length();
+            letterCount += index.letterCount();
+            letterOffsets[w + 1] = letterCount;
+
+            letterMasks[w] = index.getLetterMask();
+        }
+
+        return new WordCatalog(wordStarts, codePoints, positionLetters, positions,
+                               letterOffsets,
+                               Arrays.copyOf(letters, letterCount),
+                               Arrays.copyOf(letterStarts, letterCount + wordCount),
+                               letterMasks);
+    }
+
+    private WordCatalog(int[] wordStarts, int[] codePoints, int[] positionLetters, int[] positions,
+                        int[] letterOffsets, int[] letters, int[] letterStarts, long[] letterMasks) {
+        this.wordStarts = wordStarts;
+        this.codePoints = codePoints;
+        this.positionLetters = positionLetters;
+        this.positions = positions;
+        this.letterOffsets = letterOffsets;
+        this.letters = letters;
+        this.letterStarts = letterStarts;
+        this.letterMasks = letterMasks;
+    }
+
+    public int size() {
+        return this.letterMasks.length;
+    }
+
+    public WordIndex get(int wordNumber) {
+        return view(wordNumber, wordString(wordNumber));
+    }
+
+    public WordIndex randomWord() {
+        return get(ThreadLocalRandom.current().nextInt(size()));
+    }
+
+    // The catalog's index for the word, or one computed on the spot if the word isn't in the
+    // catalog (eg. a game created before the word list changed)
+    public WordIndex indexFor(String word) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compareToWord(mid, word);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return view(mid, word);
+            }
+        }
+
+        return WordIndex.of(word);
+    }
+
+    // Approximate bytes retained by the catalog's arrays
+    public long estimatedHeapBytes() {
+        long arrayHeader = 16;
+        return (wordStarts.length + codePoints.length + positionLetters.length + positions.length +
+                letterOffsets.length + letters.length + letterStarts.length) * (long) Integer.BYTES +
+               letterMasks.length * (long) Long.BYTES +
+               8 * arrayHeader;
+    }
+
+    private WordIndex view(int wordNumber, String word) {
+        int letterBase = letterOffsets[wordNumber];
+        return new WordIndex(word, letterMasks[wordNumber],
+                             codePoints, positionLetters, positions,
+                             wordStarts[wordNumber], wordStarts[wordNumber + 1] - wordStarts[wordNumber],
+                             letters, letterBase, letterOffsets[wordNumber + 1] - letterBase,
+                             letterStarts, letterBase + wordNumber);
+    }
+
+    private String wordString(int wordNumber) {
+        StringBuilder word = new StringBuilder(wordStarts[wordNumber + 1] - wordStarts[wordNumber]);
+        for (int i = wordStarts[wordNumber]; i < wordStarts[wordNumber + 1]; i++) {
+            word.appendCodePoint(codePoints[i]);
+            // positions follow String indexes, so a supplementary code point also has a
+            // position for its low surrogate
+            if (Character.isSupplementaryCodePoint(codePoints[i])) {
+                i++;
+            }
+        }
+        return word.toString();
+    }
+
+    private int compareToWord(int wordNumber, String word) {
+        int start = wordStarts[wordNumber];
+        int length = wordStarts[wordNumber + 1] - start;
+        int common = Math.min(length, word.length());
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(codePoints[start + i], word.codePointAt(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, word.length());
+    }
+
+    private static int compareWords(String a, String b) {
+        int common = Math.min(a.length(), b.length());
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(a.codePointAt(i), b.codePointAt(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(a.length(), b.length());
+    }
+}
@@ -0,0 +1,154 @@
+package name.voses.hangman.resources;
+
+import java.util.Arrays;
+
+// Immutable per-word lookup tables, so applying a guess only touches the positions it hits.
+//
+// Positions match String indexes (which is what the masked word is sized by). The distinct
+// code points of the word are kept sorted in `letters`; the positions of letters[i] are
+// positions[letterStarts[i]] until positions[letterStarts[i + 1]].
+//
+// The tables can be slices of larger shared arrays (see WordCatalog), so every access goes
+// through the *Base offsets. letterMask has a bit per ASCII letter in the word, plus
+// OTHER_LETTERS_BIT if it has anything else, which rules out most misses without a search.
+public final class WordIndex {
+    static final long OTHER_LETTERS_BIT = 1L << 63;
+
+    private final String word;
+    private final long letterMask;
+
+    private final int[] codePoints;
+    private final int[] positionLetters;
+    private final int[] positions;
+    private final int positionBase;
+    private final int length;
+
+    private final int[] letters;
+    private final int letterBase;
+    private final int letterCount;
+
+    private final int[] letterStarts;
+    private final int letterStartsBase;
+
+    public static WordIndex of(String word) {
+        int length = word.length();
+
+        int[] codePoints = new int[length];
+        for (int i = 0; i < length; i++) {
+            codePoints[i] = word.codePointAt(i);
+        }
+
+        int[] sorted = codePoints.clone();
+        Arrays.sort(sorted);
+        int letterCount = 0;
+        for (int i = 0; i < length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[letterCount++] = sorted[i];
+            }
+        }
+        int[] letters = Arrays.copyOf(sorted, letterCount);
+
+        long letterMask = 0;
+        for (int letter : letters) {
+            letterMask |= maskBit(letter);
+        }
+
+        int[] positionLetters = new int[length];
+        int[] letterStarts = new int[letterCount + 1];
+        for (int i = 0; i < length; i++) {
+            positionLetters[i] = Arrays.binarySearch(letters, codePoints[i]);
+            letterStarts[positionLetters[i] + 1]++;
+        }
+        for (int i = 0; i < letterCount; i++) {
+            letterStarts[i + 1] += letterStarts[i];
+        }
+
+        int[] positions = new int[length];
+        int[] cursors = Arrays.copyOf(letterStarts, letterCount);
+        for (int i = 0; i < length; i++) {
+            positions[cursors[positionLetters[i]]++] = i;
+        }
+
+        return new WordIndex(word, letterMask,
+                             codePoints, positionLetters, positions, 0, length,
+                             letters, 0, letterCount,
+                             letterStarts, 0);
+    }
+
+    static long maskBit(int codePoint) {
+        if (codePoint >= 'a' && codePoint <= 'z') {
+            return 1L << (codePoint - 'a');
+        } else if (codePoint >= 'A' && codePoint <= 'Z') {
+            return 1L << (26 + codePoint - 'A');
+        }
+        return OTHER_LETTERS_BIT;
+    }
+
+    WordIndex(String word, long letterMask,
+              int[] codePoints, int[] positionLetters, int[] positions, int positionBase, int length,
+              int[] letters, int letterBase, int letterCount,
+              int[] letterStarts, int letterStartsBase) {
+        this.word = word;
+        this.letterMask = letterMask;
+        this.codePoints = codePoints;
+        this.positionLetters = positionLetters;
+        this.positions = positions;
+        this.positionBase = positionBase;
+        this.length = length;
+        this.letters = letters;
+        this.letterBase = letterBase;
+        this.letterCount = letterCount;
+        this.letterStarts = letterStarts;
+        this.letterStartsBase = letterStartsBase;
+    }
+
+    public String getWord() {
+        return this.word;
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    public int codePointAt(int position) {
+        return this.codePoints[positionBase + position];
+    }
+
+    public int letterCount() {
+        return this.letterCount;
+    }
+
+    public long getLetterMask() {
+        return this.letterMask;
+    }
+
+    // index of the code point in the word's distinct letters, or a negative number if the word doesn't contain it
+    public int letterIndex(int codePoint) {
+        if ((letterMask & maskBit(codePoint)) == 0) {
+            return -1;
+        }
+
+        int index = Arrays.binarySearch(this.letters, letterBase, letterBase + letterCount, codePoint);
+        return index >= 0 ? index - letterBase : -1;
+    }
+
+    public int letter(int letterIndex) {
+        return this.letters[letterBase + letterIndex];
+    }
+
+    public int letterAtPosition(int position) {
+        return this.positionLetters[positionBase + position];
+    }
+
+    public int positionsStart(int letterIndex) {
+        return this.letterStarts[letterStartsBase + letterIndex];
+    }
+
+    public int positionsEnd(int letterIndex) {
+        return this.letterStarts[letterStartsBase + letterIndex + 1];
+    }
+
+    public int position(int i) {
+        return this.positions[positionBase + i];
+    }
+}
@@ -0,0 +1,331 @@
+package name.voses.hangman.updates;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import name.voses.hangman.persistence.GameInfoService;
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.PlayState;
+
+// Pushes the play state of watched games to their spectators as server-sent events.
+//
+// Every watched game has one channel on this node, however many watch it. The channel is fed by
+// publish(), which is handed the result of every guess made through this node, and, when a poll
+// interval is set, by a single poll of the store so guesses made through other nodes show up
+// too. A new state is serialized once and queued for each watcher; the channel drops states
+// older than the last one it saw, so the same state arriving twice is only sent once.
+//
+// Each watcher has a bounded queue drained by the sender threads. A watcher that lets its queue
+// fill up is disconnected rather than held on to, it can reconnect and start from the current
+// state. Streams end once the game is won or lost.
+//
+// Other code can subscribe to a game's channel too (game play sockets push other players'
+// guesses with it), and is handed every newer Game the channel sees until it unsubscribes.
+//
+// Only the sender threads touch an emitter: SseEmitter.send and complete lock the emitter, so a
+// watcher is closed by marking it and leaving the complete() to its sender, rather than calling
+// it with the channel locked and stalling every publish behind a slow send.
+public class GameUpdates implements Closeable {
+    private static Logger LOG = LoggerFactory.getLogger(GameUpdates.class);
+
+    private static final String EVENT_NAME = "playState";
+
+    private static class Update {
+        private final int version;
+        private final String playState;
+        private final boolean last;
+
+        private Update(int version, String playState, boolean last) {
+            this.version = version;
+            this.playState = playState;
+            this.last = last;
+        }
+    }
+
+    private class Channel {
+        private final Set<Watcher> watchers = ConcurrentHashMap.newKeySet();
+        private final Set<Consumer<Game>> listeners = ConcurrentHashMap.newKeySet();
+        // guarded by the channel
+        private Update latest;
+        private ScheduledFuture<?> poll;
+    }
+
+    private class Watcher implements Runnable {
+        private final String gameId;
+        private final SseEmitter emitter;
+        private final Queue<Update> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Watcher(String gameId, SseEmitter emitter) {
+            this.gameId = gameId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void offer(Update update) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(update)) {
+                slowConsumers.inc();
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                Update update;
+                while (!closed && (update = queue.poll()) != null) {
+                    try {
+                        emitter.send(SseEmitter.event()
+                                               .id(Integer.toString(update.version))
+                                               .name(EVENT_NAME)
+                                               .data(update.playState, MediaType.APPLICATION_JSON));
+                        sent.inc();
+                    } catch (IOException | IllegalStateException e) {
+                        // the client went away, or the stream already ended
+                        closed = true;
+                        remove(this);
+                        return;
+                    }
+                    if (update.last) {
+                        closed = true;
+                    }
+                }
+                if (closed) {
+                    // sending stays set, so this is the last run
+                    emitter.complete();
+                    return;
+                }
+                sending.set(false);
+            // an update queued, or a close, after the drain above but before sending was cleared
+            } while ((closed || !queue.isEmpty()) && sending.compareAndSet(false, true));
+        }
+
+        // leaves it to the completion callback to remove the watcher, this may be called with
+        // the channel locked
+        private void close() {
+            closed = true;
+            schedule();
+        }
+    }
+
+    private final GameInfoService store;
+    private final ObjectWriter writer;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long pollIntervalMillis;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger watcherCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService poller;
+
+    private final Counter published;
+    private final Counter sent;
+    private final Counter slowConsumers;
+
+    public GameUpdates(GameInfoService store, ObjectWriter writer, int bufferSize, Duration timeout,
+                       Duration pollInterval, int senderThreads, MetricRegistry metricRegistry) {
+        this.store = store;
+        this.writer = writer;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.pollIntervalMillis = pollInterval.toMillis();
+
+        this.senders = Executors.newFixedThreadPool(senderThreads, (runnable) -> {
+            Thread thread = new Thread(runnable, "game-updates-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.poller = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "game-updates-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.published = metricRegistry.counter(MetricRegistry.name(GameUpdates.class, "published"));
+        this.sent = metricRegistry.counter(MetricRegistry.name(GameUpdates.class, "sent"));
+        this.slowConsumers = metricRegistry.counter(MetricRegistry.name(GameUpdates.class, "slowConsumers"));
+        metricRegistry.gauge(MetricRegistry.name(GameUpdates.class, "games"), () -> (Gauge<Integer>) channels::size);
+        metricRegistry.gauge(MetricRegistry.name(GameUpdates.class, "watchers"), () -> (Gauge<Integer>) watcherCount::get);
+    }
+
+    // A stream starting with the game's current state
+    public SseEmitter watch(Game game) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        watch(game, emitter);
+        return emitter;
+    }
+
+    void watch(Game game, SseEmitter emitter) {
+        Update initial = update(game);
+        Watcher watcher = new Watcher(game.getId(), emitter);
+        emitter.onCompletion(() -> remove(watcher));
+        emitter.onTimeout(() -> remove(watcher));
+        emitter.onError((e) -> remove(watcher));
+
+        if (initial.last) {
+            watcher.offer(initial);
+            return;
+        }
+
+        channels.compute(game.getId(), (gameId, channel) -> {
+            if (channel == null) {
+                channel = newChannel(gameId);
+            }
+
+            synchronized (channel) {
+                // a guess may have been published since the watcher read the game
+                if (channel.latest == null || channel.latest.version < initial.version) {
+                    channel.latest = initial;
+                }
+                channel.watchers.add(watcher);
+                watcherCount.incrementAndGet();
+                watcher.offer(channel.latest);
+            }
+            return channel;
+        });
+    }
+
+    // The listener is called with the channel locked, so it has to hand the game off rather than
+    // block. It may be called with a game it has already seen, or one older than it has.
+    public void subscribe(String gameId, Consumer<Game> listener) {
+        channels.compute(gameId, (id, channel) -> {
+            if (channel == null) {
+                channel = newChannel(id);
+            }
+            if (channel.listeners.add(listener)) {
+                watcherCount.incrementAndGet();
+            }
+            return channel;
+        });
+    }
+
+    public void unsubscribe(String gameId, Consumer<Game> listener) {
+        channels.computeIfPresent(gameId, (id, channel) -> {
+            if (channel.listeners.remove(listener)) {
+                watcherCount.decrementAndGet();
+            }
+            return retain(channel);
+        });
+    }
+
+    // Only costs a lookup for games nobody is watching
+    public void publish(Game game) {
+        Channel channel = channels.get(game.getId());
+        if (channel == null) {
+            return;
+        }
+
+        synchronized (channel) {
+            if (channel.latest != null && channel.latest.version >= game.getPlayState().getGuessedLetterCount()) {
+                return;
+            }
+
+            channel.latest = update(game);
+            published.inc();
+            for (Watcher watcher : channel.watchers) {
+                watcher.offer(channel.latest);
+            }
+            for (Consumer<Game> listener : channel.listeners) {
+                listener.accept(game);
+            }
+        }
+    }
+
+    // must be called while computing the channel's entry
+    private Channel newChannel(String gameId) {
+        Channel channel = new Channel();
+        if (pollIntervalMillis > 0) {
+            channel.poll = poller.scheduleWithFixedDelay(() -> poll(gameId), pollIntervalMillis,
+                                                         pollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return channel;
+    }
+
+    // null once nobody is left on the channel, must be called while computing its entry
+    private Channel retain(Channel channel) {
+        if (!channel.watchers.isEmpty() || !channel.listeners.isEmpty()) {
+            return channel;
+        }
+
+        if (channel.poll != null) {
+            channel.poll.cancel(false);
+        }
+        return null;
+    }
+
+    private void poll(String gameId) {
+        try {
+            Game game = store.findGameWithGuesses(gameId);
+            if (game != null) {
+                publish(game);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Polling game " + gameId + " for updates failed", e);
+        }
+    }
+
+    private void remove(Watcher watcher) {
+        channels.computeIfPresent(watcher.gameId, (gameId, channel) -> {
+            if (channel.watchers.remove(watcher)) {
+                watcherCount.decrementAndGet();
+            }
+            return retain(channel);
+        });
+    }
+
+    private Update update(Game game) {
+        PlayState playState = game.getPlayState();
+        try {
+            return new Update(playState.getGuessedLetterCount(),
+                              writer.writeValueAsString(playState),
+                              playState.isGameWon() || playState.getRemainingWrongGuesses() < 1);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Couldn't serialize the play state of game " + game.getId(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        poller.shutdownNow();
+        senders.shutdownNow();
+        channels.values().forEach((channel) -> channel.watchers.forEach((watcher) -> watcher.emitter.complete()));
+    }
+}
@@ -1,27 +1,39 @@
 package name.voses.hangman;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.WebSocket;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -34,8 +46,6 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
-import name.voses.hangman.persistence.GameInfoDynamoDBManagement;
-
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
 @SuppressWarnings("unchecked")
 public class HangmanApplicationTests {
@@ -53,21 +63,6 @@ public class HangmanApplicationTests {
         headers.setContentType(MediaType.APPLICATION_JSON);
     }
 
-    /******************************************
-     * DB Setup
-     /******************************************/
-    @Autowired
-	private AmazonDynamoDB amazonDynamoDB;
-
-	@Autowired
-	private DynamoDBMapper mapper;
-
-    @BeforeEach
-    public void setupDB() throws Exception { GameInfoDynamoDBManagement.initDB(amazonDynamoDB, mapper); }
-
-    @AfterEach
-    public void tearDownDB() throws Exception { GameInfoDynamoDBManagement.tearDownDB(amazonDynamoDB, mapper); }
-
     /******************************************
      * Basic create tests
      ******************************************/
@@ -100,6 +95,25 @@ public class HangmanApplicationTests {
         assertEquals(10, game.get("maxWrongGuesses"));
     }
 
+    @Test
+    public void createsGamesInBulk() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put("count", 30);
+        options.put("maxWrongGuesses", 4);
+
+        ResponseEntity<String> response =
+            this.restTemplate.postForEntity("http://localhost:" + port + "/games/bulk",
+                                            new HttpEntity<String>(options.toString(), headers),
+                                            String.class);
+        assertEquals(201, response.getStatusCodeValue());
+
+        List<Map<String, Object>> games =
+            (List<Map<String, Object>>) new ObjectMapper().readValue(response.getBody(), Map.class).get("games");
+        assertEquals(30, games.size());
+        assertEquals(4, games.get(0).get("maxWrongGuesses"));
+        assertEquals(30, games.stream().map((g) -> g.get("id")).distinct().count());
+    }
+
     /******************************************
      * Show Game
      ******************************************/
@@ -116,6 +130,23 @@ public class HangmanApplicationTests {
         assertEquals(createdGame.get("id"), showedGame.get("id"));
     }
 
+    @Test
+    public void retrievesGamesInBulk() throws Exception {
+        String firstId = (String) readGame(postCreateGame(null)).get("id");
+        String secondId = (String) readGame(postCreateGame(null)).get("id");
+
+        ResponseEntity<String> response =
+            this.restTemplate.getForEntity("http://localhost:" + port + "/games?ids=" + secondId + ",missing," + firstId,
+                                           String.class);
+        assertEquals(200, response.getStatusCodeValue());
+
+        Map<String, Object> body = new ObjectMapper().readValue(response.getBody(), Map.class);
+        List<Map<String, Object>> games = (List<Map<String, Object>>) body.get("games");
+        assertIterableEquals(List.of(secondId, firstId),
+                             games.stream().map((g) -> g.get("id")).collect(Collectors.toList()));
+        assertIterableEquals(List.of("missing"), (List<Object>) body.get("missingIds"));
+    }
+
     /******************************************
      * Guessing tests
      ******************************************/
@@ -209,6 +240,207 @@ public class HangmanApplicationTests {
         }
     }
 
+    @Test
+    public void appliesBatchOfGuessesInOrder() throws Exception {
+        ResponseEntity<String> createResponse = postCreateGame(2);
+        Map<String, Object> game = readGame(createResponse);
+
+        ResponseEntity<String> batchResponse = registerGuesses((String) game.get("id"), List.of("a", "☃", "a", "b", "☠", "r"));
+        assertEquals(200, batchResponse.getStatusCodeValue());
+
+        game = readGame(batchResponse);
+        Map<String, Object> playState = (Map<String, Object>) game.get("playState");
+        assertEquals(0, playState.get("remainingWrongGuesses"));
+        assertIterableEquals(Arrays.asList("a", "b", null, null, null, null, null, null), getLetters(playState));
+
+        List<Map<String, Object>> outcomes =
+            (List<Map<String, Object>>) new ObjectMapper().readValue(batchResponse.getBody(), Map.class).get("outcomes");
+        assertIterableEquals(List.of("HIT", "MISS", "REPEAT", "HIT", "MISS", "INELIGIBLE"),
+                             outcomes.stream().map((o) -> o.get("outcome")).collect(Collectors.toList()));
+
+        // and the stored game matches
+        playState = (Map<String, Object>) readGame(getGame((String) game.get("id"))).get("playState");
+        assertEquals(0, playState.get("remainingWrongGuesses"));
+    }
+
+    @Test
+    public void rejectsBadBatches() throws Exception {
+        Map<String, Object> game = readGame(postCreateGame(2));
+
+        assertEquals(400, registerGuesses((String) game.get("id"), List.of()).getStatusCodeValue());
+        assertEquals(400, registerGuesses((String) game.get("id"), List.of("a", "bc")).getStatusCodeValue());
+        assertEquals(404, registerGuesses("missing", List.of("a")).getStatusCodeValue());
+    }
+
+    /******************************************
+     * Conditional GET tests
+     ******************************************/
+    @Test
+    public void answersUnchangedGamesWithNotModified() throws Exception {
+        ResponseEntity<String> createResponse = postCreateGame(5);
+        String gameId = (String) readGame(createResponse).get("id");
+        String eTag = createResponse.getHeaders().getETag();
+        assertNotNull(eTag);
+
+        ResponseEntity<String> unchanged = getGame(gameId, eTag);
+        assertEquals(304, unchanged.getStatusCodeValue());
+        assertEquals(eTag, unchanged.getHeaders().getETag());
+        assertNull(unchanged.getBody());
+
+        ResponseEntity<String> guessResponse = registerGuess(gameId, "a");
+        String guessETag = guessResponse.getHeaders().getETag();
+        assertNotEquals(eTag, guessETag);
+
+        ResponseEntity<String> changed = getGame(gameId, eTag);
+        assertEquals(200, changed.getStatusCodeValue());
+        assertEquals(guessETag, changed.getHeaders().getETag());
+        assertEquals(guessResponse.getBody(), changed.getBody());
+
+        // a repeat changes nothing
+        assertEquals(guessETag, registerGuess(gameId, "a").getHeaders().getETag());
+        assertEquals(304, getGame(gameId, guessETag).getStatusCodeValue());
+    }
+
+    /******************************************
+     * Spectator tests
+     ******************************************/
+    @Test
+    public void streamsPlayStatesToWatchers() throws Exception {
+        String gameId = (String) readGame(postCreateGame(1)).get("id");
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/games/" + gameId + "/events"))
+                                         .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                                         .build();
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(request, BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        Iterator<String> lines = response.body().iterator();
+
+        assertEquals("id:0", lines.next());
+        assertEquals("event:playState", lines.next());
+        assertTrue(lines.next().startsWith("data:{\"remainingWrongGuesses\":1,"));
+        assertEquals("", lines.next());
+
+        registerGuess(gameId, "a");
+        assertEquals("id:1", lines.next());
+        lines.next();
+        assertTrue(lines.next().contains("{\"letter\":\"a\"}"));
+        lines.next();
+
+        // losing ends the stream
+        registerGuess(gameId, "☃");
+        assertEquals("id:2", lines.next());
+        lines.next();
+        assertTrue(lines.next().startsWith("data:{\"remainingWrongGuesses\":0,"));
+        lines.next();
+        assertFalse(lines.hasNext());
+
+        assertEquals(404, HttpClient.newHttpClient()
+                                    .send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/games/missing/events")).build(),
+                                          BodyHandlers.discarding())
+                                    .statusCode());
+    }
+
+    /******************************************
+     * WebSocket play tests
+     ******************************************/
+    @Test
+    public void playsGameOverWebSocket() throws Exception {
+        String gameId = (String) readGame(postCreateGame(1)).get("id");
+
+        BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        WebSocket webSocket = HttpClient.newHttpClient().newWebSocketBuilder()
+            .buildAsync(URI.create("ws://localhost:" + port + "/play"), new WebSocket.Listener() {
+                @Override
+                public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                    messages.add(data.toString());
+                    webSocket.request(1);
+                    return null;
+                }
+            })
+            .get(5, TimeUnit.SECONDS);
+
+        webSocket.sendText("{\"guess\":\"a\"}", true).get();
+        assertEquals("{\"e\":\"NOT_JOINED\"}", messages.poll(5, TimeUnit.SECONDS));
+
+        webSocket.sendText("{\"join\":\"" + gameId + "\"}", true).get();
+        assertEquals("{\"s\":{\"v\":0,\"r\":1,\"m\":[null,null,null,null,null,null,null,null],\"x\":[]}}",
+                     messages.poll(5, TimeUnit.SECONDS));
+
+        // sent without waiting for replies, they're applied in order
+        for (String letter : List.of("a", "a", "☃", "b")) {
+            webSocket.sendText("{\"guess\":\"" + letter + "\"}", true).get();
+        }
+        assertEquals("{\"g\":\"a\",\"o\":\"HIT\",\"s\":{\"v\":1,\"r\":1,\"m\":[\"a\",null,null,null,null,null,null,null],\"x\":[]}}",
+                     messages.poll(5, TimeUnit.SECONDS));
+        assertTrue(messages.poll(5, TimeUnit.SECONDS).startsWith("{\"g\":\"a\",\"o\":\"REPEAT\","));
+        assertTrue(messages.poll(5, TimeUnit.SECONDS).startsWith("{\"g\":\"☃\",\"o\":\"MISS\",\"s\":{\"v\":2,\"r\":0,"));
+        assertTrue(messages.poll(5, TimeUnit.SECONDS).startsWith("{\"g\":\"b\",\"o\":\"INELIGIBLE\","));
+
+        // the same game over HTTP
+        Map<String, Object> playState = (Map<String, Object>) readGame(getGame(gameId)).get("playState");
+        assertEquals(0, playState.get("remainingWrongGuesses"));
+
+        webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").get();
+    }
+
+    @Test
+    public void pushesOtherPlayersGuessesOverWebSocket() throws Exception {
+        String gameId = (String) readGame(postCreateGame(2)).get("id");
+
+        BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        WebSocket webSocket = HttpClient.newHttpClient().newWebSocketBuilder()
+            .buildAsync(URI.create("ws://localhost:" + port + "/play"), new WebSocket.Listener() {
+                @Override
+                public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                    messages.add(data.toString());
+                    webSocket.request(1);
+                    return null;
+                }
+            })
+            .get(5, TimeUnit.SECONDS);
+
+        webSocket.sendText("{\"join\":\"" + gameId + "\"}", true).get();
+        assertTrue(messages.poll(5, TimeUnit.SECONDS).startsWith("{\"s\":{\"v\":0,"));
+
+        // its own guess is only replied to
+        webSocket.sendText("{\"guess\":\"a\"}", true).get();
+        assertTrue(messages.poll(5, TimeUnit.SECONDS).startsWith("{\"g\":\"a\",\"o\":\"HIT\",\"s\":{\"v\":1,"));
+
+        // another player's is pushed
+        assertEquals(200, registerGuess(gameId, "☃").getStatusCodeValue());
+        assertEquals("{\"u\":{\"v\":2,\"r\":1,\"m\":[\"a\",null,null,null,null,null,null,null],\"x\":[\"☃\"]}}",
+                     messages.poll(5, TimeUnit.SECONDS));
+        assertNull(messages.poll(200, TimeUnit.MILLISECONDS));
+
+        webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").get();
+    }
+
+    /******************************************
+     * Metrics tests
+     ******************************************/
+    @Test
+    public void timesEndpointsAndStorage() throws Exception {
+        Map<String, Object> game = readGame(postCreateGame(5));
+        getGame((String) game.get("id"));
+
+        ResponseEntity<String> response = this.restTemplate.getForEntity("http://localhost:" + port + "/metrics?prefix=name.voses.hangman",
+                                                                          String.class);
+        assertEquals(200, response.getStatusCodeValue());
+
+        Map<String, Object> timers = (Map<String, Object>) new ObjectMapper().readValue(response.getBody(), Map.class).get("timers");
+        for (String name : List.of("name.voses.hangman.api.GamesController.createGame",
+                                   "name.voses.hangman.api.GamesController.getGame",
+                                   "name.voses.hangman.persistence.InMemoryGameInfoService.createGameAsync",
+                                   "name.voses.hangman.persistence.InMemoryGameInfoService.findGameWithGuessesAsync")) {
+            Map<String, Object> timer = (Map<String, Object>) timers.get(name);
+            assertNotNull(timer, name + " in " + timers.keySet());
+            assertTrue(((Number) timer.get("count")).longValue() > 0, name);
+            assertNotNull(timer.get("p99"), name);
+        }
+        // only the store is timed, not the layers wrapped around it
+        assertFalse(timers.keySet().stream().anyMatch((name) -> name.contains("NotifyingGameInfoService")), timers.keySet().toString());
+    }
+
     /******************************************
      * Helpers
      *
@@ -238,6 +470,16 @@ public class HangmanApplicationTests {
         return response;
     }
 
+    private ResponseEntity<String> getGame(String gameId, String ifNoneMatch) {
+        HttpHeaders conditionalHeaders = new HttpHeaders();
+        conditionalHeaders.setIfNoneMatch(ifNoneMatch);
+
+        return this.restTemplate.exchange("http://localhost:" + port + "/games/" + gameId,
+                                          HttpMethod.GET,
+                                          new HttpEntity<>(conditionalHeaders),
+                                          String.class);
+    }
+
     private ResponseEntity<String> registerGuess(String gameId, String guess) throws UnsupportedEncodingException {
         ResponseEntity<String> response =
             this.restTemplate.exchange("http://localhost:" + port + "/games/" + gameId + "/guesses/" + guess,
@@ -248,6 +490,15 @@ public class HangmanApplicationTests {
         return response;
     }
 
+    private ResponseEntity<String> registerGuesses(String gameId, List<String> letters) throws JsonProcessingException {
+        HttpEntity<String> request =
+            new HttpEntity<String>(new ObjectMapper().writeValueAsString(Map.of("letters", letters)), headers);
+
+        return this.restTemplate.postForEntity("http://localhost:" + port + "/games/" + gameId + "/guesses",
+                                               request,
+                                               String.class);
+    }
+
     private Map<String, Object> readGame(ResponseEntity<String> response) throws JsonMappingException, JsonProcessingException {
         Map<String, Object> responseContents = new ObjectMapper().readValue(response.getBody(), Map.class);
 
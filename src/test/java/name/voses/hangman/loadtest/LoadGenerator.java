@@ -0,0 +1,304 @@
+package name.voses.hangman.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Counter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import name.voses.hangman.HangmanApplication;
+
+// Simulates players against a running instance: each creates a game, then polls it and guesses
+// a letter at a time until it's won or lost, then starts another. Latency is recorded per
+// endpoint, and a JSON report written at the end so runs can be compared.
+//
+// Each player means to send a request every loadtest.interval, but waits for the response to
+// one before sending the next. Left as is, a stall would hold back the requests that should have
+// gone out during it, and only the one slow request would be recorded (coordinated omission).
+// Latency is recorded into an HdrHistogram with recordValueWithExpectedInterval, which fills in
+// the requests the stall held back, so the percentiles are what a steady stream of requests at
+// that rate would have seen. With an interval of 0 players send as fast as they can, and
+// nothing is corrected.
+//
+// Configured with system properties:
+//   loadtest.baseUrl         instance to run against, if not set one is started in process
+//                            (with whatever storage the classpath's application.yml sets up)
+//   loadtest.players         concurrent players (16)
+//   loadtest.duration        measured run time, after the warmup (60s, or 5m etc)
+//   loadtest.warmup          time run before measuring (10s)
+//   loadtest.maxWrongGuesses for each game created (10)
+//   loadtest.pollsPerGuess   GETs of the game before each guess (1)
+//   loadtest.interval        time each player means to leave between sending requests (50ms)
+//   loadtest.report          report file (target/loadtest-report.json)
+//   loadtest.label           recorded in the report, such as the version under test
+public class LoadGenerator {
+    static final String CREATE = "POST /games";
+    static final String POLL = "GET /games/{id}";
+    static final String GUESS = "PUT /games/{id}/guesses/{letter}";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+
+    private static class Endpoint {
+        // every request of the run (plus those a stall held back), to 3 significant digits
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final Counter requests = new Counter();
+        private final Counter errors = new Counter();
+    }
+
+    // swapped out at the end of the warmup, so nothing from it is reported
+    private static class Recording {
+        private final Map<String, Endpoint> endpoints = Map.of(CREATE, new Endpoint(),
+                                                               POLL, new Endpoint(),
+                                                               GUESS, new Endpoint());
+        private final AtomicLong gamesWon = new AtomicLong();
+        private final AtomicLong gamesLost = new AtomicLong();
+    }
+
+    private final URI baseUri;
+    private final int players;
+    private final int maxWrongGuesses;
+    private final int pollsPerGuess;
+    private final long intervalNanos;
+    private final HttpClient client;
+
+    private volatile Recording recording = new Recording();
+    private volatile boolean running = true;
+
+    public LoadGenerator(URI baseUri, int players, int maxWrongGuesses, int pollsPerGuess, Duration interval) {
+        this.baseUri = baseUri;
+        this.players = players;
+        this.maxWrongGuesses = maxWrongGuesses;
+        this.pollsPerGuess = pollsPerGuess;
+        this.intervalNanos = interval.toNanos();
+        this.client = HttpClient.newBuilder()
+                                .connectTimeout(Duration.ofSeconds(10))
+                                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("loadtest.baseUrl");
+        ConfigurableApplicationContext application = null;
+        if (baseUrl == null) {
+            application = SpringApplication.run(HangmanApplication.class, "--server.port=0");
+            baseUrl = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            LoadGenerator generator = new LoadGenerator(URI.create(baseUrl),
+                                                        Integer.getInteger("loadtest.players", 16),
+                                                        Integer.getInteger("loadtest.maxWrongGuesses", 10),
+                                                        Integer.getInteger("loadtest.pollsPerGuess", 1),
+                                                        durationProperty("loadtest.interval", "50ms"));
+            Map<String, Object> report = generator.run(durationProperty("loadtest.warmup", "10s"),
+                                                       durationProperty("loadtest.duration", "60s"));
+            report.put("label", System.getProperty("loadtest.label", ""));
+
+            Path reportFile = Paths.get(System.getProperty("loadtest.report", "target/loadtest-report.json"));
+            Files.createDirectories(reportFile.toAbsolutePath().getParent());
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), report);
+            System.out.println(MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+            System.out.println("Report written to " + reportFile);
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    public Map<String, Object> run(Duration warmup, Duration duration) throws InterruptedException {
+        ExecutorService playerThreads = Executors.newFixedThreadPool(players);
+        for (int i = 0; i < players; i++) {
+            playerThreads.execute(this::play);
+        }
+
+        Thread.sleep(warmup.toMillis());
+        Recording measured = new Recording();
+        recording = measured;
+        Instant startedAt = Instant.now();
+        long started = System.nanoTime();
+
+        Thread.sleep(duration.toMillis());
+        running = false;
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+        playerThreads.shutdown();
+        playerThreads.awaitTermination(30, TimeUnit.SECONDS);
+
+        return report(measured, startedAt, elapsedSeconds);
+    }
+
+    private void play() {
+        long[] nextSend = { System.nanoTime() };
+        while (running) {
+            try {
+                playGame(nextSend);
+            } catch (IOException | RuntimeException e) {
+                // already counted against the endpoint, move on to a new game
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void playGame(long[] nextSend) throws IOException, InterruptedException {
+        JsonNode game = send(nextSend, CREATE, HttpRequest.newBuilder(baseUri.resolve("/games"))
+                                                .header("Content-Type", "application/json")
+                                                .POST(HttpRequest.BodyPublishers.ofString("{\"maxWrongGuesses\":" + maxWrongGuesses + "}")));
+        if (game == null) {
+            return;
+        }
+
+        String gameId = game.path("id").asText();
+        List<Character> letters = new ArrayList<>();
+        for (char letter : ALPHABET.toCharArray()) {
+            letters.add(letter);
+        }
+        Collections.shuffle(letters, ThreadLocalRandom.current());
+
+        for (char letter : letters) {
+            if (!running) {
+                return;
+            }
+
+            for (int i = 0; i < pollsPerGuess; i++) {
+                send(nextSend, POLL, HttpRequest.newBuilder(baseUri.resolve("/games/" + gameId)).GET());
+            }
+
+            game = send(nextSend, GUESS, HttpRequest.newBuilder(baseUri.resolve("/games/" + gameId + "/guesses/" + letter))
+                                          .PUT(HttpRequest.BodyPublishers.noBody()));
+            if (game == null) {
+                return;
+            }
+            if (isWon(game)) {
+                recording.gamesWon.incrementAndGet();
+                return;
+            }
+            if (game.path("playState").path("remainingWrongGuesses").asInt() < 1) {
+                recording.gamesLost.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    // the game from the response, or null (counted as an error) if the request failed. Waits
+    // until nextSend first, then moves it on by the interval; a player that's fallen behind
+    // sends straight away rather than bunching up the requests it missed.
+    private JsonNode send(long[] nextSend, String endpointName, HttpRequest.Builder request) throws IOException, InterruptedException {
+        long wait = nextSend[0] - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        long started = System.nanoTime();
+        nextSend[0] = Math.max(nextSend[0], started - intervalNanos) + intervalNanos;
+
+        Endpoint endpoint = recording.endpoints.get(endpointName);
+        endpoint.requests.inc();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            endpoint.errors.inc();
+            throw e;
+        }
+        endpoint.latency.recordValueWithExpectedInterval(System.nanoTime() - started, intervalNanos);
+
+        if (response.statusCode() >= 400) {
+            endpoint.errors.inc();
+            return null;
+        }
+        return MAPPER.readTree(response.body()).path("game");
+    }
+
+    private static boolean isWon(JsonNode game) {
+        for (JsonNode letter : game.path("playState").path("maskedWord")) {
+            if (letter.path("letter").isNull() || letter.path("letter").isMissingNode()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, Object> report(Recording measured, Instant startedAt, double elapsedSeconds) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (String name : List.of(CREATE, POLL, GUESS)) {
+            Endpoint endpoint = measured.endpoints.get(name);
+            long requests = endpoint.requests.getCount();
+            long errors = endpoint.errors.getCount();
+            Histogram histogram = endpoint.latency;
+
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("mean", millis(histogram.getMean()));
+            latency.put("p50", millis(histogram.getValueAtPercentile(50)));
+            latency.put("p90", millis(histogram.getValueAtPercentile(90)));
+            latency.put("p99", millis(histogram.getValueAtPercentile(99)));
+            latency.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+            latency.put("p9999", millis(histogram.getValueAtPercentile(99.99)));
+            latency.put("max", millis(histogram.getMaxValue()));
+            // includes the requests filled in for stalls
+            latency.put("samples", histogram.getTotalCount());
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", requests);
+            stats.put("errors", errors);
+            stats.put("errorRate", requests == 0 ? 0.0 : (double) errors / requests);
+            stats.put("throughputPerSecond", requests / elapsedSeconds);
+            stats.put("latencyMillis", latency);
+            endpoints.put(name, stats);
+
+            totalRequests += requests;
+            totalErrors += errors;
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", startedAt.toString());
+        report.put("baseUrl", baseUri.toString());
+        report.put("players", players);
+        report.put("maxWrongGuesses", maxWrongGuesses);
+        report.put("pollsPerGuess", pollsPerGuess);
+        report.put("intervalMillis", millis(intervalNanos));
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("requests", totalRequests);
+        report.put("errors", totalErrors);
+        report.put("throughputPerSecond", totalRequests / elapsedSeconds);
+        report.put("gamesWon", measured.gamesWon.get());
+        report.put("gamesLost", measured.gamesLost.get());
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    private static Duration durationProperty(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(name, defaultValue));
+    }
+}
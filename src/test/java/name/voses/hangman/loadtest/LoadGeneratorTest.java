@@ -0,0 +1,38 @@
+package name.voses.hangman.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@SuppressWarnings("unchecked")
+public class LoadGeneratorTest {
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void playsGamesAndReportsEachEndpoint() throws Exception {
+        LoadGenerator generator = new LoadGenerator(URI.create("http://localhost:" + port), 4, 10, 1,
+                                                    Duration.ofMillis(5));
+
+        Map<String, Object> report = generator.run(Duration.ofMillis(200), Duration.ofSeconds(1));
+
+        assertEquals(0L, report.get("errors"));
+        assertTrue((long) report.get("gamesWon") + (long) report.get("gamesLost") > 0, report.toString());
+        Map<String, Object> endpoints = (Map<String, Object>) report.get("endpoints");
+        for (String endpoint : new String[] { LoadGenerator.CREATE, LoadGenerator.POLL, LoadGenerator.GUESS }) {
+            Map<String, Object> stats = (Map<String, Object>) endpoints.get(endpoint);
+            assertTrue((long) stats.get("requests") > 0, endpoint);
+            Map<String, Object> latency = (Map<String, Object>) stats.get("latencyMillis");
+            assertTrue((long) latency.get("samples") >= (long) stats.get("requests"), endpoint);
+        }
+    }
+}
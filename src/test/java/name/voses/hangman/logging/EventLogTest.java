@@ -0,0 +1,103 @@
+package name.voses.hangman.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class EventLogTest {
+    private static final Logger LOG = LoggerFactory.getLogger(EventLogTest.class);
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void writesEventsInOrder() {
+        EventLog eventLog = new EventLog(16, EventLog.FullPolicy.BLOCK, Duration.ofSeconds(5), 4, metricRegistry,
+                                         (logger, line) -> lines.add(line));
+
+        for (int i = 0; i < 100; i++) {
+            eventLog.log(LOG, Map.of("i", i));
+        }
+        eventLog.close();
+
+        assertEquals(IntStream.range(0, 100).mapToObj((i) -> "{\"i\":" + i + "}").collect(Collectors.toList()),
+                     lines);
+        assertEquals(100, metricRegistry.counter("name.voses.hangman.logging.EventLog.written").getCount());
+    }
+
+    @Test
+    public void dropsWhenFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EventLog eventLog = new EventLog(4, EventLog.FullPolicy.DROP, Duration.ZERO, 4, metricRegistry,
+                                         (logger, line) -> {
+                                             writing.countDown();
+                                             await(release);
+                                             lines.add(line);
+                                         });
+
+        // the writer takes the first and is held up writing it, then the buffer fills
+        eventLog.log(LOG, Map.of("i", 0));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 8; i++) {
+            eventLog.log(LOG, Map.of("i", i));
+        }
+
+        assertEquals(3, metricRegistry.counter("name.voses.hangman.logging.EventLog.dropped").getCount());
+        release.countDown();
+        eventLog.close();
+        assertEquals(5, lines.size());
+    }
+
+    @Test
+    public void blocksUntilThereIsRoom() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EventLog eventLog = new EventLog(2, EventLog.FullPolicy.BLOCK, Duration.ofSeconds(5), 2, metricRegistry,
+                                         (logger, line) -> {
+                                             writing.countDown();
+                                             await(release);
+                                             lines.add(line);
+                                         });
+
+        eventLog.log(LOG, Map.of("i", 0));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        eventLog.log(LOG, Map.of("i", 1));
+        eventLog.log(LOG, Map.of("i", 2));
+
+        Thread blockedLogger = new Thread(() -> eventLog.log(LOG, Map.of("i", 3)));
+        blockedLogger.start();
+        blockedLogger.join(200);
+        assertTrue(blockedLogger.isAlive());
+
+        release.countDown();
+        blockedLogger.join(5000);
+        eventLog.close();
+
+        assertEquals(4, lines.size());
+        assertEquals(0, metricRegistry.counter("name.voses.hangman.logging.EventLog.dropped").getCount());
+        assertEquals(1, metricRegistry.counter("name.voses.hangman.logging.EventLog.blocked").getCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package name.voses.hangman.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class RequestLogFilterTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+    private final EventLog eventLog = new EventLog(64, EventLog.FullPolicy.BLOCK, Duration.ofSeconds(5), 16,
+                                                   metricRegistry, (logger, line) -> lines.add(line));
+
+    @Test
+    public void parsesRules() {
+        List<RequestLogFilter.Rule> rules = RequestLogFilter.Rule.parse(" PUT /games/*/guesses/*=0.5,\n get /games/*=0, ");
+
+        assertEquals(2, rules.size());
+        RequestLogFilter filter = filter(rules, 1.0, 1.0, 16);
+        filter(request("GET", "/games/abc", ""), HttpServletResponse.SC_OK, filter);
+        filter(request("POST", "/games", ""), HttpServletResponse.SC_CREATED, filter);
+        eventLog.close();
+
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\"uri\":\"/games\""), lines.get(0));
+    }
+
+    @Test
+    public void logsErrorsThatWerentSampled() {
+        RequestLogFilter filter = filter(List.of(), 0.0, 1.0, 16);
+
+        filter(request("PUT", "/games/abc/guesses/a", "{}"), HttpServletResponse.SC_OK, filter);
+        filter(request("PUT", "/games/abc/guesses/b", "{}"), HttpServletResponse.SC_NOT_FOUND, filter);
+        eventLog.close();
+
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"action\":\"request\",\"method\":\"PUT\",\"uri\":\"/games/abc/guesses/b\",\"status\":404,"),
+                   lines.get(0));
+        assertEquals(1, metricRegistry.counter("name.voses.hangman.logging.RequestLogFilter.logged").getCount());
+    }
+
+    @Test
+    public void capturesAtMostMaxPayloadBytes() {
+        RequestLogFilter filter = filter(List.of(), 1.0, 1.0, 8);
+
+        filter(request("POST", "/games/abc/guesses", "{\"letters\":[\"a\",\"b\"]}"), HttpServletResponse.SC_OK, filter);
+        eventLog.close();
+
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).endsWith(",\"payload\":\"{\\\"letter\"}"), lines.get(0));
+    }
+
+    private RequestLogFilter filter(List<RequestLogFilter.Rule> rules, double sampleRate, double errorSampleRate,
+                                    int maxPayloadBytes) {
+        return new RequestLogFilter(eventLog, rules, sampleRate, errorSampleRate, maxPayloadBytes, false, metricRegistry);
+    }
+
+    private MockHttpServletRequest request(String method, String uri, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    // reads the whole body, as a controller would, then responds with the status
+    private void filter(MockHttpServletRequest request, int status, RequestLogFilter filter) {
+        FilterChain chain = (chainRequest, chainResponse) -> {
+            chainRequest.getInputStream().readAllBytes();
+            ((HttpServletResponse) chainResponse).setStatus(status);
+        };
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package name.voses.hangman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveRateLimiterTest {
+    private final AtomicLong now = new AtomicLong();
+    private final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, Duration.ofSeconds(1), Duration.ofSeconds(1), now::get);
+
+    @Test
+    public void waitsOutReservationsBeyondTheBurst() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.reserve(1));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), limiter.reserve(1));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, limiter.reserve(1));
+    }
+
+    @Test
+    public void capsDebtAtTheMaxWait() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.reserve(1) <= TimeUnit.SECONDS.toNanos(1));
+        }
+        limiter.settle(50);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), limiter.reserve(1));
+
+        // a second pays off all the debt there can be
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(1));
+    }
+
+    @Test
+    public void settlesWithWhatWasActuallyUsed() {
+        assertEquals(0, limiter.reserve(10));
+        limiter.settle(-9.5);
+
+        for (int i = 0; i < 9; i++) {
+            assertEquals(0, limiter.reserve(1));
+        }
+        limiter.settle(5);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(550), limiter.reserve(1));
+    }
+
+    @Test
+    public void backsOffWhenThrottledThenRecovers() {
+        limiter.throttled();
+        assertEquals(5, limiter.rate(), 0.001);
+        limiter.throttled();
+        assertEquals(2.5, limiter.rate(), 0.001);
+
+        // nothing saved up any more, and paced at the lower rate
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(400), limiter.reserve(1));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(7.5, limiter.rate(), 0.001);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(10, limiter.rate(), 0.001);
+    }
+}
@@ -0,0 +1,187 @@
+package name.voses.hangman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.resources.WordCatalog;
+
+public class CoalescingGameInfoServiceTest {
+    // Counts the writes made, holding them up until released, with batches optionally losing the race
+    // and single writes optionally failing
+    private static class CountingGameInfoService extends InMemoryGameInfoService {
+        private final AtomicInteger singleWrites = new AtomicInteger();
+        private final AtomicInteger batchWrites = new AtomicInteger();
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch release;
+        private volatile boolean conflicted;
+        private volatile Error failure;
+
+        private CountingGameInfoService(CountDownLatch release) {
+            super(WordCatalog.compile(List.of("abruptly")), 100, Duration.ofHours(1), new MetricRegistry());
+            this.release = release;
+        }
+
+        @Override
+        public GuessResult guessLetter(String gameId, String letter) {
+            singleWrites.incrementAndGet();
+            awaitRelease();
+            if (failure != null) {
+                throw failure;
+            }
+            return super.guessLetter(gameId, letter);
+        }
+
+        @Override
+        public BatchGuessResult guessLetters(String gameId, List<String> letters) {
+            batchWrites.incrementAndGet();
+            awaitRelease();
+            return conflicted ? BatchGuessResult.conflicted() : super.guessLetters(gameId, letters);
+        }
+
+        private void awaitRelease() {
+            writing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountingGameInfoService store = new CountingGameInfoService(release);
+    private final CoalescingGameInfoService coalescing =
+        new CoalescingGameInfoService(store, Duration.ZERO, 64, 2, metricRegistry, Timer::new);
+
+    @AfterEach
+    public void closeCoalescing() {
+        release.countDown();
+        coalescing.close();
+    }
+
+    @Test
+    public void appliesGuessesQueuedBehindAWriteTogether() throws Exception {
+        Game game = store.createGame(3);
+
+        CompletableFuture<GuessResult> first = coalescing.guessLetterAsync(game.getId(), "a");
+        assertTrue(store.writing.await(5, TimeUnit.SECONDS));
+        // these arrive while "a" is being written
+        CompletableFuture<GuessResult> hit = coalescing.guessLetterAsync(game.getId(), "b");
+        CompletableFuture<GuessResult> repeat = coalescing.guessLetterAsync(game.getId(), "a");
+        CompletableFuture<GuessResult> miss = coalescing.guessLetterAsync(game.getId(), "z");
+        CompletableFuture<GuessResult> again = coalescing.guessLetterAsync(game.getId(), "b");
+        release.countDown();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).isRecorded());
+        assertTrue(hit.get(5, TimeUnit.SECONDS).isRecorded());
+        assertEquals(GuessIneligibleReason.REPEAT, repeat.get(5, TimeUnit.SECONDS).getIneligibleReason());
+        assertTrue(miss.get(5, TimeUnit.SECONDS).isRecorded());
+        assertEquals(GuessIneligibleReason.REPEAT, again.get(5, TimeUnit.SECONDS).getIneligibleReason());
+
+        // everyone in the batch gets the state after all of it
+        Game after = hit.get().getGame();
+        assertEquals(3, after.getPlayState().getGuessedLetterCount());
+        assertEquals(after.getPlayState().getGuessedLetterCount(),
+                     again.get().getGame().getPlayState().getGuessedLetterCount());
+        assertEquals(1, store.singleWrites.get());
+        assertEquals(1, store.batchWrites.get());
+        assertEquals(2, metricRegistry.histogram("name.voses.hangman.persistence.CoalescingGameInfoService.batchSize")
+                                      .getCount());
+        assertEquals(5, metricRegistry.timer("name.voses.hangman.persistence.CoalescingGameInfoService.queueing")
+                                      .getCount());
+    }
+
+    @Test
+    public void reportsGuessesAfterTheGameEndedAsIneligible() throws Exception {
+        Game game = store.createGame(1);
+
+        coalescing.guessLetterAsync(game.getId(), "a");
+        assertTrue(store.writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<GuessResult> lost = coalescing.guessLetterAsync(game.getId(), "z");
+        CompletableFuture<GuessResult> late = coalescing.guessLetterAsync(game.getId(), "b");
+        release.countDown();
+
+        assertTrue(lost.get(5, TimeUnit.SECONDS).isRecorded());
+        assertEquals(GuessIneligibleReason.TOO_MANY_WRONG_GUESSES, late.get(5, TimeUnit.SECONDS).getIneligibleReason());
+    }
+
+    @Test
+    public void fallsBackToSingleGuessesWhenTheBatchConflicts() throws Exception {
+        Game game = store.createGame(3);
+        store.conflicted = true;
+
+        CompletableFuture<GuessResult> first = coalescing.guessLetterAsync(game.getId(), "a");
+        assertTrue(store.writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<GuessResult> hit = coalescing.guessLetterAsync(game.getId(), "b");
+        CompletableFuture<GuessResult> miss = coalescing.guessLetterAsync(game.getId(), "z");
+        release.countDown();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).isRecorded());
+        assertTrue(hit.get(5, TimeUnit.SECONDS).isRecorded());
+        assertTrue(miss.get(5, TimeUnit.SECONDS).isRecorded());
+        assertEquals(3, miss.get().getGame().getPlayState().getGuessedLetterCount());
+        assertEquals(1, store.batchWrites.get());
+        assertEquals(3, store.singleWrites.get());
+    }
+
+    @Test
+    public void answersNotFoundForMissingGames() throws Exception {
+        release.countDown();
+
+        GuessResult result = coalescing.guessLetter("missing", "a");
+
+        assertFalse(result.isFound());
+    }
+
+    @Test
+    public void failsTheBatchAndMovesOnWhenAWriteThrowsAnError() throws Exception {
+        Game game = store.createGame(3);
+        release.countDown();
+        store.failure = new AssertionError("write failed");
+
+        CompletableFuture<GuessResult> failed = coalescing.guessLetterAsync(game.getId(), "a");
+
+        assertEquals(AssertionError.class,
+                     assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS)).getCause().getClass());
+
+        store.failure = null;
+        assertTrue(coalescing.guessLetterAsync(game.getId(), "b").get(5, TimeUnit.SECONDS).isRecorded());
+    }
+
+    @Test
+    public void failsWaitingGuessesWhenClosed() throws Exception {
+        Game game = store.createGame(3);
+
+        CompletableFuture<GuessResult> first = coalescing.guessLetterAsync(game.getId(), "a");
+        assertTrue(store.writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<GuessResult> waiting = coalescing.guessLetterAsync(game.getId(), "b");
+        coalescing.close();
+
+        assertEquals(IllegalStateException.class,
+                     assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS)).getCause().getClass());
+        CompletableFuture<GuessResult> late = coalescing.guessLetterAsync(game.getId(), "c");
+        assertEquals(IllegalStateException.class,
+                     assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS)).getCause().getClass());
+        // the write under way is left to finish
+        assertTrue(first.get(5, TimeUnit.SECONDS).isRecorded());
+    }
+}
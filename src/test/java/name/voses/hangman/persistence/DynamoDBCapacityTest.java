@@ -0,0 +1,127 @@
+package name.voses.hangman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.jupiter.api.Test;
+
+public class DynamoDBCapacityTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final DynamoDBCapacity capacity = new DynamoDBCapacity(metricRegistry, 100, 0, Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+    @Test
+    public void asksForConsumedCapacity() {
+        GetItemRequest getItem = new GetItemRequest();
+        GetItemRequest indexes = new GetItemRequest().withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+
+        capacity.beforeExecution(getItem);
+        capacity.beforeExecution(indexes);
+
+        assertEquals(ReturnConsumedCapacity.TOTAL.toString(), getItem.getReturnConsumedCapacity());
+        assertEquals(ReturnConsumedCapacity.INDEXES.toString(), indexes.getReturnConsumedCapacity());
+    }
+
+    @Test
+    public void recordsConsumedCapacityByKind() {
+        call(new GetItemRequest(), new GetItemResult().withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(0.5)));
+        call(new GetItemRequest(), new GetItemResult().withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(1.0)));
+        call(new BatchWriteItemRequest(),
+             new BatchWriteItemResult().withConsumedCapacity(List.of(new ConsumedCapacity().withCapacityUnits(25.0))));
+        assertEquals(1, meter("consumed.read"));
+        assertEquals(25, meter("consumed.write"));
+
+        // the half left over is marked once it adds up to a unit
+        call(new GetItemRequest(), new GetItemResult().withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(0.5)));
+        assertEquals(2, meter("consumed.read"));
+    }
+
+    @Test
+    public void backsOffOnThrottles() {
+        Request<?> request = new DefaultRequest<>(new GetItemRequest(), "AmazonDynamoDBv2");
+        AmazonServiceException throttle = new AmazonServiceException("throttled");
+        throttle.setErrorCode("ProvisionedThroughputExceededException");
+
+        capacity.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(request).build());
+        capacity.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request).withException(throttle).build());
+
+        assertEquals(1, metricRegistry.counter(MetricRegistry.name(DynamoDBCapacity.class, "throttles", "read")).getCount());
+        assertEquals(50.0, gauge("limit.read"), 0.1);
+    }
+
+    @Test
+    public void chargesWritesRefusedByTheirCondition() {
+        DynamoDBCapacity limited = new DynamoDBCapacity(metricRegistry, 0, 2, Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+        // each refused write uses up a unit, so the third waits for the bucket of 2 to refill
+        for (int i = 0; i < 2; i++) {
+            Request<?> request = new DefaultRequest<>(new UpdateItemRequest(), "AmazonDynamoDBv2");
+            limited.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(request).build());
+            limited.afterAttempt(HandlerAfterAttemptContext.builder()
+                                                           .withRequest(request)
+                                                           .withException(new ConditionalCheckFailedException("refused"))
+                                                           .build());
+        }
+        assertEquals(2, meter("consumed.write"));
+
+        long started = System.nanoTime();
+        limited.beforeAttempt(HandlerBeforeAttemptContext.builder()
+                                                         .withRequest(new DefaultRequest<>(new UpdateItemRequest(), "AmazonDynamoDBv2"))
+                                                         .build());
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(1, metricRegistry.timer(MetricRegistry.name(DynamoDBCapacity.class, "waits")).getCount());
+    }
+
+    @Test
+    public void refundsAttemptsThatFailedOtherwise() {
+        DynamoDBCapacity limited = new DynamoDBCapacity(metricRegistry, 0, 2, Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 3; i++) {
+            Request<?> request = new DefaultRequest<>(new UpdateItemRequest(), "AmazonDynamoDBv2");
+            limited.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(request).build());
+            limited.afterAttempt(HandlerAfterAttemptContext.builder()
+                                                           .withRequest(request)
+                                                           .withException(new SdkClientException("connection reset"))
+                                                           .build());
+        }
+
+        assertEquals(0, meter("consumed.write"));
+        assertEquals(0, metricRegistry.timer(MetricRegistry.name(DynamoDBCapacity.class, "waits")).getCount());
+    }
+
+    private void call(AmazonWebServiceRequest originalRequest, Object result) {
+        Request<?> request = new DefaultRequest<>(originalRequest, "AmazonDynamoDBv2");
+        capacity.beforeExecution(request.getOriginalRequest());
+        capacity.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(request).build());
+        capacity.afterResponse(request, new Response<>(result, null));
+    }
+
+    private long meter(String name) {
+        return metricRegistry.meter(MetricRegistry.name(DynamoDBCapacity.class, name)).getCount();
+    }
+
+    private double gauge(String name) {
+        return (Double) metricRegistry.getGauges().get(MetricRegistry.name(DynamoDBCapacity.class, name)).getValue();
+    }
+}
@@ -0,0 +1,64 @@
+package name.voses.hangman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.PlayState;
+
+public class GameCacheTest {
+    private final AtomicLong now = new AtomicLong();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void expiresEntriesAfterTtl() {
+        GameCache cache = new GameCache(100, Duration.ofSeconds(10), metricRegistry, now::get);
+        Game game = game("game1");
+        cache.put(game);
+
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertSame(game, cache.get("game1"));
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.get("game1"));
+
+        assertEquals(1, metricRegistry.counter("name.voses.hangman.persistence.GameCache.hits").getCount());
+        assertEquals(1, metricRegistry.counter("name.voses.hangman.persistence.GameCache.misses").getCount());
+        assertEquals(1, metricRegistry.counter("name.voses.hangman.persistence.GameCache.expirations").getCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenFull() {
+        // 16 segments of 1 entry each
+        GameCache cache = new GameCache(16, Duration.ofMinutes(1), metricRegistry, now::get);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(game("game" + i));
+        }
+
+        assertEquals(16, cache.size());
+        assertEquals(1000 - cache.size(),
+                     metricRegistry.counter("name.voses.hangman.persistence.GameCache.evictions").getCount());
+    }
+
+    @Test
+    public void doesNotRollBackToAnOlderState() {
+        GameCache cache = new GameCache(100, Duration.ofMinutes(1), metricRegistry, now::get);
+        Game guessed = new Game("game1", 5, "abc", PlayState.build(5, new String[] { "a", "z" }, "abc"));
+        cache.put(guessed);
+        cache.put(game("game1"));
+
+        assertSame(guessed, cache.get("game1"));
+    }
+
+    private Game game(String id) {
+        return new Game(id, 5, "abc", PlayState.build(5, new String[0], "abc"));
+    }
+}
@@ -0,0 +1,138 @@
+package name.voses.hangman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.document.Table;
+import com.amazonaws.services.dynamodbv2.document.UpdateItemOutcome;
+import com.amazonaws.services.dynamodbv2.document.spec.GetItemSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.UpdateItemSpec;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.resources.WordCatalog;
+
+// Guesses against a table where every write loses the race to another guess, no DynamoDB needed
+public class GameInfoServiceImplConflictTest {
+    private static final Item GAME = new Item().withPrimaryKey("game_id", "contended")
+                                               .withInt("max_wrong_guesses", 5)
+                                               .withString("word_being_guessed", "abruptly")
+                                               .withList("guesses", List.of())
+                                               .withInt("wrong_guess_count", 0);
+
+    // from before the wrong_guess_count/unguessed_letters bookkeeping
+    private static final Item LEGACY_GAME = new Item().withPrimaryKey("game_id", "contended")
+                                                      .withInt("max_wrong_guesses", 5)
+                                                      .withString("word_being_guessed", "abruptly")
+                                                      .withList("guesses", List.of());
+
+    private static class ContendedTable extends Table {
+        private final Item item;
+        private final List<String> conditions = new CopyOnWriteArrayList<>();
+
+        private ContendedTable(Item item) {
+            // never called, the calls it would make are overridden
+            super(AmazonDynamoDBClientBuilder.standard().withRegion("us-east-1").build(), "GameInfo");
+            this.item = item;
+        }
+
+        @Override
+        public Item getItem(GetItemSpec spec) {
+            return item;
+        }
+
+        @Override
+        public UpdateItemOutcome updateItem(UpdateItemSpec spec) {
+            conditions.add(spec.getConditionExpression());
+            throw new ConditionalCheckFailedException("lost the race");
+        }
+    }
+
+    private static class ContendedAsyncClient extends AbstractAmazonDynamoDBAsync {
+        private final Item item;
+        private final List<String> conditions = new CopyOnWriteArrayList<>();
+
+        private ContendedAsyncClient(Item item) {
+            this.item = item;
+        }
+
+        @Override
+        public Future<GetItemResult> getItemAsync(GetItemRequest request, AsyncHandler<GetItemRequest, GetItemResult> handler) {
+            GetItemResult result = new GetItemResult().withItem(ItemUtils.toAttributeValues(item));
+            handler.onSuccess(request, result);
+            return CompletableFuture.completedFuture(result);
+        }
+
+        @Override
+        public Future<UpdateItemResult> updateItemAsync(UpdateItemRequest request,
+                                                        AsyncHandler<UpdateItemRequest, UpdateItemResult> handler) {
+            conditions.add(request.getConditionExpression());
+            ConditionalCheckFailedException e = new ConditionalCheckFailedException("lost the race");
+            handler.onError(e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Test
+    public void givesUpAsConflictedOnceAttemptsRunOut() {
+        ContendedTable table = new ContendedTable(GAME);
+        GameInfoServiceImpl gameInfoService = gameInfoService(table);
+
+        BatchGuessResult result = gameInfoService.guessLetters("contended", List.of("a", "z"));
+
+        assertTrue(result.isConflicted());
+        assertFalse(result.isFound());
+        assertEquals(GameInfoServiceImpl.BATCH_GUESS_ATTEMPTS, table.conditions.size());
+    }
+
+    @Test
+    public void legacyGameGuessThatLosesTheRaceIsARepeat() {
+        ContendedTable table = new ContendedTable(LEGACY_GAME);
+        GameInfoServiceImpl gameInfoService = gameInfoService(table);
+
+        GuessResult result = gameInfoService.guessLetter("contended", "z");
+
+        assertEquals(GuessIneligibleReason.REPEAT, result.getIneligibleReason());
+        assertEquals(2, table.conditions.size());
+        assertEquals("NOT contains(guesses, :letter)", table.conditions.get(1));
+    }
+
+    @Test
+    public void legacyGameGuessThatLosesTheRaceIsARepeatAsync() throws Exception {
+        ContendedAsyncClient client = new ContendedAsyncClient(LEGACY_GAME);
+        GameInfoServiceImpl gameInfoService = gameInfoService(new ContendedTable(LEGACY_GAME));
+        ReflectionTestUtils.setField(gameInfoService, "amazonDynamoDBAsync", client);
+
+        GuessResult result = gameInfoService.guessLetterAsync("contended", "z").get(5, TimeUnit.SECONDS);
+
+        assertEquals(GuessIneligibleReason.REPEAT, result.getIneligibleReason());
+        assertEquals(2, client.conditions.size());
+        assertEquals("NOT contains(guesses, :letter)", client.conditions.get(1));
+    }
+
+    private static GameInfoServiceImpl gameInfoService(Table table) {
+        GameInfoServiceImpl gameInfoService = new GameInfoServiceImpl();
+        ReflectionTestUtils.setField(gameInfoService, "table", table);
+        ReflectionTestUtils.setField(gameInfoService, "wordCatalog", WordCatalog.compile(List.of("abruptly")));
+        return gameInfoService;
+    }
+}
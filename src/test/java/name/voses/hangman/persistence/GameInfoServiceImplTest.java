@@ -3,15 +3,21 @@ package name.voses.hangman.persistence;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.document.AttributeUpdate;
+import com.amazonaws.services.dynamodbv2.document.DynamoDB;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,9 +27,14 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import name.voses.hangman.HangmanApplication;
 import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.GuessOutcome;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
 
 @ExtendWith(SpringExtension.class)
-@SpringBootTest(classes = {PropertyPlaceholderAutoConfiguration.class, HangmanApplication.class})
+@SpringBootTest(classes = {PropertyPlaceholderAutoConfiguration.class, HangmanApplication.class},
+                properties = {"games.storage=dynamodb", "games.async=true"})
+// needs the dynamodb-test container, run with -Pdynamodb
+@Tag("dynamodb")
 // @TestPropertySource(properties = {
 //     "amazon.dynamodb.endpoint=http://localhost:8000/",
 //     "amazon.aws.accesskey=test1",
@@ -78,4 +89,103 @@ public class GameInfoServiceImplTest {
                                               .collect(Collectors.toList());
         assertIterableEquals(List.of("z"), missedLetters);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void storeGuessSkipsRepeats() {
+        Game originalGame = gameInfoService.createGame(10);
+
+        gameInfoService.storeGuess(originalGame, "z");
+        Game foundGame = gameInfoService.storeGuess(originalGame, "z");
+
+        assertEquals(9, foundGame.getPlayState().getRemainingWrongGuesses());
+        assertEquals(1, foundGame.getPlayState().getGuessedLetterCount());
+    }
+
+    @Test
+    public void guessLetterReturnsUpdatedState() {
+        Game originalGame = gameInfoService.createGame(10);
+
+        GuessResult result = gameInfoService.guessLetter(originalGame.getId(), "z");
+        assertNull(result.getIneligibleReason());
+        assertEquals(9, result.getGame().getPlayState().getRemainingWrongGuesses());
+    }
+
+    @Test
+    public void guessLetterRejectsRepeatsAndFinishedGames() {
+        Game originalGame = gameInfoService.createGame(1);
+
+        gameInfoService.guessLetter(originalGame.getId(), "☃");
+
+        GuessResult repeat = gameInfoService.guessLetter(originalGame.getId(), "☃");
+        assertEquals(GuessIneligibleReason.REPEAT, repeat.getIneligibleReason());
+        assertEquals(0, repeat.getGame().getPlayState().getRemainingWrongGuesses());
+
+        GuessResult lost = gameInfoService.guessLetter(originalGame.getId(), "☣");
+        assertEquals(GuessIneligibleReason.TOO_MANY_WRONG_GUESSES, lost.getIneligibleReason());
+    }
+
+    @Test
+    public void guessLettersAppliesBatchInOneWrite() {
+        Game originalGame = gameInfoService.createGame(2);
+
+        BatchGuessResult result = gameInfoService.guessLetters(originalGame.getId(), List.of("a", "☃", "a", "b"));
+        assertIterableEquals(List.of(GuessOutcome.HIT, GuessOutcome.MISS, GuessOutcome.REPEAT, GuessOutcome.HIT),
+                             result.getOutcomes());
+
+        Game foundGame = gameInfoService.findGameWithGuesses(originalGame.getId());
+        assertEquals(1, foundGame.getPlayState().getRemainingWrongGuesses());
+        assertEquals(3, foundGame.getPlayState().getGuessedLetterCount());
+
+        // the bookkeeping attributes were kept in step, so single guesses still see the right state
+        gameInfoService.guessLetter(originalGame.getId(), "☠");
+        assertEquals(GuessIneligibleReason.TOO_MANY_WRONG_GUESSES,
+                     gameInfoService.guessLetter(originalGame.getId(), "r").getIneligibleReason());
+    }
+
+    @Test
+    public void createsAndFindsGamesInBatches() {
+        // more than a single BatchWriteItem (25) and BatchGetItem (100) allow
+        List<Game> games = gameInfoService.createGames(130, 4);
+        assertEquals(130, games.size());
+
+        List<String> gameIds = games.stream().map(Game::getId).collect(Collectors.toList());
+        List<String> lookup = new ArrayList<>(gameIds);
+        lookup.add(1, "missing");
+
+        Map<String, Game> found = gameInfoService.findGamesWithGuesses(lookup);
+        assertIterableEquals(gameIds, found.keySet());
+        assertEquals(games.get(7).getWordBeingGuessed(), found.get(gameIds.get(7)).getWordBeingGuessed());
+    }
+
+    @Test
+    public void asyncVariantsMatchBlockingOnes() throws Exception {
+        Game originalGame = gameInfoService.createGameAsync(2).get();
+
+        GuessResult hit = gameInfoService.guessLetterAsync(originalGame.getId(), "a").get();
+        assertNull(hit.getIneligibleReason());
+        gameInfoService.guessLetterAsync(originalGame.getId(), "☃").get();
+        assertEquals(GuessIneligibleReason.REPEAT,
+                     gameInfoService.guessLetterAsync(originalGame.getId(), "☃").get().getIneligibleReason());
+
+        Game foundGame = gameInfoService.findGameWithGuessesAsync(originalGame.getId()).get();
+        assertEquals(1, foundGame.getPlayState().getRemainingWrongGuesses());
+        assertEquals(foundGame.getPlayState().getGuessedLetterCount(),
+                     gameInfoService.findGameWithGuesses(originalGame.getId()).getPlayState().getGuessedLetterCount());
+
+        assertNull(gameInfoService.findGameWithGuessesAsync("missing").get());
+        assertEquals(GuessResult.notFound(), gameInfoService.guessLetterAsync("missing", "a").get());
+    }
+
+    @Test
+    public void treatsExpiredGamesAsNotFound() throws Exception {
+        Game originalGame = gameInfoService.createGame(10);
+
+        // DynamoDB may take days to delete it, until then it's still there
+        new DynamoDB(amazonDynamoDB).getTable("GameInfo")
+            .updateItem("game_id", originalGame.getId(), new AttributeUpdate("ttl").put(1L));
+
+        assertNull(gameInfoService.findGameWithGuesses(originalGame.getId()));
+        assertNull(gameInfoService.findGameWithGuessesAsync(originalGame.getId()).get());
+        assertEquals(GuessResult.notFound(), gameInfoService.guessLetter(originalGame.getId(), "a"));
+    }
+}
@@ -0,0 +1,128 @@
+package name.voses.hangman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.resources.WordCatalog;
+
+public class InMemoryGameInfoServiceTest {
+    private final AtomicLong now = new AtomicLong();
+    private final InMemoryGameInfoService gameInfoService =
+        new InMemoryGameInfoService(WordCatalog.compile(List.of("abruptly")), 3, Duration.ofHours(1),
+                                    new MetricRegistry(), now::get);
+
+    @Test
+    public void createsAndRetrievesGame() {
+        Game originalGame = gameInfoService.createGame(10);
+
+        Game foundGame = gameInfoService.findGameWithGuesses(originalGame.getId());
+        assertEquals(originalGame.getId(), foundGame.getId());
+        assertEquals(originalGame.getMaxWrongGuesses(), foundGame.getMaxWrongGuesses());
+        assertEquals("abruptly", foundGame.getWordBeingGuessed());
+    }
+
+    @Test
+    public void associatesGuessWithGame() {
+        Game originalGame = gameInfoService.createGame(10);
+
+        gameInfoService.storeGuess(originalGame, "z");
+        gameInfoService.storeGuess(originalGame, "z");
+
+        Game foundGame = gameInfoService.findGameWithGuesses(originalGame.getId());
+        assertEquals(9, foundGame.getPlayState().getRemainingWrongGuesses());
+
+        List<String> missedLetters = foundGame.getPlayState()
+                                              .getMissedGuesses()
+                                              .stream()
+                                              .map((l) -> l.getLetter())
+                                              .collect(Collectors.toList());
+        assertIterableEquals(List.of("z"), missedLetters);
+    }
+
+    @Test
+    public void guessLetterRejectsRepeatsAndFinishedGames() {
+        Game originalGame = gameInfoService.createGame(1);
+
+        assertNull(gameInfoService.guessLetter(originalGame.getId(), "☃").getIneligibleReason());
+        assertEquals(GuessIneligibleReason.REPEAT,
+                     gameInfoService.guessLetter(originalGame.getId(), "☃").getIneligibleReason());
+        assertEquals(GuessIneligibleReason.TOO_MANY_WRONG_GUESSES,
+                     gameInfoService.guessLetter(originalGame.getId(), "a").getIneligibleReason());
+    }
+
+    @Test
+    public void concurrentGuessesAreEachRecordedOnce() throws Exception {
+        Game game = gameInfoService.createGame(30);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<GuessResult>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String letter = String.valueOf((char) ('c' + (i % 20)));
+            results.add(executor.submit(() -> gameInfoService.guessLetter(game.getId(), letter)));
+        }
+
+        int recorded = 0;
+        for (Future<GuessResult> result : results) {
+            if (result.get().isRecorded()) {
+                recorded++;
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(20, recorded);
+        assertEquals(20, gameInfoService.findGameWithGuesses(game.getId()).getPlayState().getGuessedLetterCount());
+    }
+
+    @Test
+    public void expiresAndEvictsGames() {
+        Game first = gameInfoService.createGame(5);
+        now.addAndGet(Duration.ofMinutes(30).toMillis());
+        Game second = gameInfoService.createGame(5);
+        gameInfoService.createGame(5);
+        gameInfoService.createGame(5);
+
+        // over capacity, the oldest goes first
+        assertNull(gameInfoService.findGameWithGuesses(first.getId()));
+        assertNotNull(gameInfoService.findGameWithGuesses(second.getId()));
+
+        now.addAndGet(Duration.ofMinutes(60).toMillis());
+        assertNull(gameInfoService.findGameWithGuesses(second.getId()));
+        assertEquals(GuessResult.notFound(), gameInfoService.guessLetter(second.getId(), "a"));
+    }
+
+    @Test
+    public void guessesPushTheExpiryBack() {
+        Game active = gameInfoService.createGame(5);
+        Game idle = gameInfoService.createGame(5);
+        now.addAndGet(Duration.ofMinutes(45).toMillis());
+        gameInfoService.guessLetter(active.getId(), "a");
+
+        now.addAndGet(Duration.ofMinutes(45).toMillis());
+        gameInfoService.createGame(5);
+        assertNotNull(gameInfoService.findGameWithGuesses(active.getId()));
+        assertNull(gameInfoService.findGameWithGuesses(idle.getId()));
+
+        now.addAndGet(Duration.ofMinutes(15).toMillis());
+        gameInfoService.createGame(5);
+        assertNull(gameInfoService.findGameWithGuesses(active.getId()));
+    }
+}
@@ -0,0 +1,197 @@
+package name.voses.hangman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+import name.voses.hangman.resources.WordCatalog;
+
+public class LocalLogGameInfoServiceTest {
+    private static final WordCatalog WORDS = WordCatalog.compile(List.of("abruptly"));
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private LocalLogGameInfoService open(int segmentSize) throws Exception {
+        return new LocalLogGameInfoService(WORDS, new GameLog(directory, segmentSize, false), Duration.ofHours(1),
+                                           new MetricRegistry(), now::get);
+    }
+
+    @Test
+    public void guessesSurviveARestart() throws Exception {
+        LocalLogGameInfoService gameInfoService = open(4096);
+        Game game = gameInfoService.createGame(5);
+        gameInfoService.guessLetter(game.getId(), "a");
+        gameInfoService.guessLetter(game.getId(), "z");
+        gameInfoService.storeGuess(game, "z");
+        gameInfoService.close();
+
+        Game foundGame = open(4096).findGameWithGuesses(game.getId());
+        assertEquals("abruptly", foundGame.getWordBeingGuessed());
+        assertEquals(4, foundGame.getPlayState().getRemainingWrongGuesses());
+        assertEquals(2, foundGame.getPlayState().getGuessedLetterCount());
+        assertEquals("a", foundGame.getPlayState().getMaskedWord().get(0).getLetter());
+    }
+
+    @Test
+    public void guessLetterRejectsRepeatsAndFinishedGames() throws Exception {
+        LocalLogGameInfoService gameInfoService = open(4096);
+        Game game = gameInfoService.createGame(1);
+
+        assertEquals(GuessResult.notFound(), gameInfoService.guessLetter("missing", "a"));
+        assertNull(gameInfoService.guessLetter(game.getId(), "☃").getIneligibleReason());
+        assertEquals(GuessIneligibleReason.REPEAT,
+                     gameInfoService.guessLetter(game.getId(), "☃").getIneligibleReason());
+        assertEquals(GuessIneligibleReason.TOO_MANY_WRONG_GUESSES,
+                     gameInfoService.guessLetter(game.getId(), "a").getIneligibleReason());
+    }
+
+    @Test
+    public void ignoresATornRecord() throws Exception {
+        LocalLogGameInfoService gameInfoService = open(4096);
+        Game game = gameInfoService.createGame(5);
+        gameInfoService.guessLetter(game.getId(), "a");
+        gameInfoService.guessLetter(game.getId(), "b");
+        gameInfoService.close();
+
+        // flip a byte in the last record, as if the process died half way through writing it
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            int offset = 0;
+            int length;
+            while ((length = readInt(file, offset)) > 0) {
+                offset += 8 + length;
+            }
+            file.seek(offset - 1);
+            int lastByte = file.read();
+            file.seek(offset - 1);
+            file.write(lastByte ^ 0xff);
+        }
+
+        gameInfoService = open(4096);
+        assertEquals(1, gameInfoService.findGameWithGuesses(game.getId()).getPlayState().getGuessedLetterCount());
+
+        // and appends carry on from the end of the good data
+        gameInfoService.guessLetter(game.getId(), "c");
+        gameInfoService.close();
+        assertEquals(2, open(4096).findGameWithGuesses(game.getId()).getPlayState().getGuessedLetterCount());
+    }
+
+    @Test
+    public void compactsSealedSegments() throws Exception {
+        LocalLogGameInfoService gameInfoService = open(512);
+        Game expired = gameInfoService.createGame(5);
+        now.addAndGet(Duration.ofMinutes(30).toMillis());
+
+        List<Game> games = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Game game = gameInfoService.createGame(5);
+            for (String letter : List.of("a", "a", "z", "b", "q", "r")) {
+                gameInfoService.storeGuess(game, letter);
+            }
+            games.add(game);
+        }
+        int segmentsBefore = segments().size();
+
+        now.addAndGet(Duration.ofMinutes(45).toMillis());
+        gameInfoService.compact();
+
+        assertTrue(segments().size() < segmentsBefore);
+        assertNull(gameInfoService.findGameWithGuesses(expired.getId()));
+        for (Game game : games) {
+            Game foundGame = gameInfoService.findGameWithGuesses(game.getId());
+            assertEquals(3, foundGame.getPlayState().getRemainingWrongGuesses());
+            assertEquals(5, foundGame.getPlayState().getGuessedLetterCount());
+        }
+
+        // and the compacted log reads back the same after a restart
+        gameInfoService.close();
+        gameInfoService = open(512);
+        assertNull(gameInfoService.findGameWithGuesses(expired.getId()));
+        for (Game game : games) {
+            assertEquals(5, gameInfoService.findGameWithGuesses(game.getId()).getPlayState().getGuessedLetterCount());
+        }
+    }
+
+    @Test
+    public void guessesPushTheExpiryBack() throws Exception {
+        LocalLogGameInfoService gameInfoService = open(512);
+        Game active = gameInfoService.createGame(5);
+        Game idle = gameInfoService.createGame(5);
+        now.addAndGet(Duration.ofMinutes(45).toMillis());
+        gameInfoService.guessLetter(active.getId(), "a");
+        for (int i = 0; i < 10; i++) {
+            gameInfoService.createGame(5);
+        }
+
+        // compaction folds the guess into the game without losing when it was made
+        now.addAndGet(Duration.ofMinutes(45).toMillis());
+        gameInfoService.compact();
+        assertEquals(1, gameInfoService.findGameWithGuesses(active.getId()).getPlayState().getGuessedLetterCount());
+        assertNull(gameInfoService.findGameWithGuesses(idle.getId()));
+
+        gameInfoService.close();
+        gameInfoService = open(512);
+        assertEquals(1, gameInfoService.findGameWithGuesses(active.getId()).getPlayState().getGuessedLetterCount());
+
+        now.addAndGet(Duration.ofMinutes(15).toMillis());
+        assertNull(gameInfoService.findGameWithGuesses(active.getId()));
+    }
+
+    @Test
+    public void droppedGamesStayGoneAfterARestart() throws Exception {
+        LocalLogGameInfoService gameInfoService = open(512);
+        Game expired = gameInfoService.createGame(5);
+        for (int i = 0; i < 10; i++) {
+            gameInfoService.createGame(5);
+        }
+        // the expired game's latest record is in the active segment, the rest of it in a sealed one
+        gameInfoService.guessLetter(expired.getId(), "a");
+        assertTrue(segments().size() > 1);
+
+        now.addAndGet(Duration.ofHours(2).toMillis());
+        gameInfoService.compact();
+        assertEquals(GuessResult.notFound(), gameInfoService.guessLetter(expired.getId(), "b"));
+        gameInfoService.close();
+
+        // the DROP record keeps the scan from indexing it again
+        GameLog gameLog = new GameLog(directory, 512, false);
+        assertFalse(gameLog.gameIds().contains(expired.getId()));
+        gameLog.close();
+
+        gameInfoService = open(512);
+        assertNull(gameInfoService.findGameWithGuesses(expired.getId()));
+        assertEquals(GuessResult.notFound(), gameInfoService.guessLetter(expired.getId(), "b"));
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static int readInt(RandomAccessFile file, int offset) throws Exception {
+        file.seek(offset);
+        return file.readInt();
+    }
+}
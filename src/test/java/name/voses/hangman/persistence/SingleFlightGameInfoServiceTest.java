@@ -0,0 +1,121 @@
+package name.voses.hangman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.WordCatalog;
+
+public class SingleFlightGameInfoServiceTest {
+    // Counts the reads made, holding each up until released and optionally failing them
+    private static class CountingGameInfoService extends InMemoryGameInfoService {
+        private final AtomicInteger reads = new AtomicInteger();
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean failing;
+
+        private CountingGameInfoService() {
+            super(WordCatalog.compile(List.of("abruptly")), 100, Duration.ofHours(1), new MetricRegistry());
+        }
+
+        @Override
+        public Game findGameWithGuesses(String gameId) {
+            reads.incrementAndGet();
+            reading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new IllegalStateException("read failed");
+            }
+            return super.findGameWithGuesses(gameId);
+        }
+    }
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final CountingGameInfoService store = new CountingGameInfoService();
+    private final SingleFlightGameInfoService singleFlight = new SingleFlightGameInfoService(store, metricRegistry);
+
+    @AfterEach
+    public void releaseReads() {
+        store.release.countDown();
+    }
+
+    @Test
+    public void sharesReadInFlight() throws Exception {
+        Game game = store.createGame(5);
+
+        CompletableFuture<Game> first = CompletableFuture.supplyAsync(() -> singleFlight.findGameWithGuesses(game.getId()));
+        assertTrue(store.reading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Game> second = CompletableFuture.supplyAsync(() -> singleFlight.findGameWithGuesses(game.getId()));
+        CompletableFuture<Game> async = singleFlight.findGameWithGuessesAsync(game.getId());
+        awaitShared(2);
+        store.release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertSame(first.get(), async.get(5, TimeUnit.SECONDS));
+        assertEquals(1, store.reads.get());
+    }
+
+    @Test
+    public void sharesFailuresWithoutKeepingThem() throws Exception {
+        Game game = store.createGame(5);
+        store.failing = true;
+
+        CompletableFuture<Game> first = CompletableFuture.supplyAsync(() -> singleFlight.findGameWithGuesses(game.getId()));
+        assertTrue(store.reading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Game> second = CompletableFuture.supplyAsync(() -> singleFlight.findGameWithGuesses(game.getId()));
+        awaitShared(1);
+        store.release.countDown();
+
+        assertEquals(IllegalStateException.class,
+                     assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause().getClass());
+        assertEquals(IllegalStateException.class,
+                     assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause().getClass());
+
+        // the next read is issued afresh
+        store.failing = false;
+        assertEquals(game.getId(), singleFlight.findGameWithGuesses(game.getId()).getId());
+        assertEquals(2, store.reads.get());
+    }
+
+    @Test
+    public void readsAfterGuessDoNotShareEarlierRead() throws Exception {
+        Game game = store.createGame(5);
+
+        CompletableFuture<Game> before = CompletableFuture.supplyAsync(() -> singleFlight.findGameWithGuesses(game.getId()));
+        assertTrue(store.reading.await(5, TimeUnit.SECONDS));
+        singleFlight.storeGuess(game, "a");
+        CompletableFuture<Game> after = CompletableFuture.supplyAsync(() -> singleFlight.findGameWithGuesses(game.getId()));
+        store.release.countDown();
+
+        assertEquals(1, after.get(5, TimeUnit.SECONDS).getPlayState().getGuessedLetterCount());
+        before.get(5, TimeUnit.SECONDS);
+        assertEquals(2, store.reads.get());
+    }
+
+    private void awaitShared(int count) throws InterruptedException {
+        Counter shared = metricRegistry.counter("name.voses.hangman.persistence.SingleFlightGameInfoService.shared");
+        for (int i = 0; i < 500 && shared.getCount() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
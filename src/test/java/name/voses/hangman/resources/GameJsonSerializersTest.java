@@ -0,0 +1,43 @@
+package name.voses.hangman.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+public class GameJsonSerializersTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void writesGameAsItsBeanProperties() throws Exception {
+        PlayState state = PlayState.build(10, new String[] { "a", "z", "b" }, "abruptly");
+        Game game = new Game("2bRnHqPe6gv1gNrFDNHEjp", 10, "abruptly", state);
+
+        assertEquals("{\"game\":{\"id\":\"2bRnHqPe6gv1gNrFDNHEjp\",\"maxWrongGuesses\":10," +
+                     "\"playState\":{\"remainingWrongGuesses\":9," +
+                     "\"maskedWord\":[{\"letter\":\"a\"},{\"letter\":\"b\"},{\"letter\":null},{\"letter\":null}," +
+                     "{\"letter\":null},{\"letter\":null},{\"letter\":null},{\"letter\":null}]," +
+                     "\"missedGuesses\":[{\"letter\":\"z\"}]},\"wordLength\":8}}",
+                     mapper.writeValueAsString(Map.of("game", game)));
+    }
+
+    @Test
+    public void writesUnicodeLetters() throws Exception {
+        PlayState state = PlayState.build(10, new String[] { "☃", "𝄞" }, "a☃");
+
+        assertEquals("{\"remainingWrongGuesses\":9," +
+                     "\"maskedWord\":[{\"letter\":null},{\"letter\":\"☃\"}]," +
+                     "\"missedGuesses\":[{\"letter\":\"𝄞\"}]}",
+                     mapper.writeValueAsString(state));
+    }
+
+    @Test
+    public void writesLetterStates() throws Exception {
+        assertEquals("[{\"letter\":\"q\"},{\"letter\":null}]",
+                     mapper.writeValueAsString(List.of(new LetterState("q"), LetterState.EMPTY_STATE)));
+    }
+}
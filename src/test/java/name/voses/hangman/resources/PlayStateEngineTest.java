@@ -0,0 +1,93 @@
+package name.voses.hangman.resources;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import name.voses.hangman.resources.PlayState.GuessIneligibleReason;
+
+public class PlayStateEngineTest {
+    @Test
+    public void testAppliesGuessesIncrementally() {
+        PlayStateEngine engine = new PlayStateEngine(WordIndex.of("mywordmy"), 10);
+
+        assertEquals(GuessOutcome.HIT, engine.guess('m'));
+        assertIterableEquals(asList("m", null, null, null, null, null, "m", null),
+                             getLetters(engine.snapshot().getMaskedWord()));
+
+        assertEquals(GuessOutcome.MISS, engine.guess('z'));
+        assertEquals(GuessOutcome.REPEAT, engine.guess('m'));
+        assertEquals(GuessOutcome.HIT, engine.guess('y'));
+
+        PlayState state = engine.snapshot();
+        assertIterableEquals(asList("m", "y", null, null, null, null, "m", "y"),
+                             getLetters(state.getMaskedWord()));
+        assertIterableEquals(List.of("z"), getLetters(state.getMissedGuesses()));
+        assertEquals(9, state.getRemainingWrongGuesses());
+        assertEquals(GuessIneligibleReason.REPEAT, state.ineligibleToGuessReason("z"));
+        assertNull(state.ineligibleToGuessReason("o"));
+    }
+
+    @Test
+    public void testTracksUnicodeGuesses() {
+        PlayStateEngine engine = new PlayStateEngine(WordIndex.of("día☃"), 5);
+
+        assertEquals(GuessOutcome.MISS, engine.guess('☠'));
+        assertEquals(GuessOutcome.HIT, engine.guess('☃'));
+        assertEquals(GuessOutcome.HIT, engine.guess('í'));
+        assertEquals(GuessOutcome.REPEAT, engine.guess('☠'));
+
+        assertIterableEquals(asList(null, "í", null, "☃"), getLetters(engine.snapshot().getMaskedWord()));
+    }
+
+    @Test
+    public void testGuessRejectsFinishedGames() {
+        PlayStateEngine engine = new PlayStateEngine(WordIndex.of("ab"), 1);
+        engine.guess('a');
+        engine.guess('b');
+
+        assertTrue(engine.isGameWon());
+        assertEquals(GuessOutcome.INELIGIBLE, engine.guess('z'));
+        assertEquals(GuessIneligibleReason.ALREADY_WON, engine.ineligibleToGuessReason('z'));
+
+        engine = new PlayStateEngine(WordIndex.of("ab"), 1);
+        engine.guess('z');
+        assertEquals(GuessOutcome.INELIGIBLE, engine.guess('a'));
+        assertEquals(GuessIneligibleReason.TOO_MANY_WRONG_GUESSES, engine.ineligibleToGuessReason('a'));
+    }
+
+    @Test
+    public void testReplayCountsGuessesStoredAfterAWin() {
+        PlayState state = PlayState.build(5, new String[] { "a", "b", "z" }, "ab");
+
+        assertEquals(4, state.getRemainingWrongGuesses());
+    }
+
+    @Test
+    public void testCopiesAreIndependent() {
+        PlayStateEngine engine = new PlayStateEngine(WordIndex.of("abc"), 5);
+        engine.guess('a');
+
+        PlayStateEngine copy = engine.copy();
+        copy.guess('b');
+
+        assertFalse(engine.isGuessed('b'));
+        assertIterableEquals(asList("a", null, null), getLetters(engine.snapshot().getMaskedWord()));
+        assertIterableEquals(asList("a", "b", null), getLetters(copy.snapshot().getMaskedWord()));
+    }
+
+    private List<String> getLetters(Collection<LetterState> letterStates) {
+        return letterStates.stream()
+                            .map((ls) -> ls.getLetter())
+                            .collect(Collectors.toList());
+    }
+}
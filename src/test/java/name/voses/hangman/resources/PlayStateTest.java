@@ -3,6 +3,7 @@ package name.voses.hangman.resources;
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -56,6 +57,25 @@ public class PlayStateTest {
                              maskedWordLetters);
     }
 
+    @Test
+    public void testEmptyGuessIsNotARepeat() {
+        PlayState state = PlayState.build(10, new String[] { "m" }, "myword");
+
+        assertEquals(null, state.ineligibleToGuessReason(""));
+        assertEquals(PlayState.GuessIneligibleReason.REPEAT, state.ineligibleToGuessReason("m"));
+    }
+
+    @Test
+    public void testSharesLetterStates() {
+        PlayState state = PlayState.build(10, new String[] { "m", "z", "☃", "𝄞" }, "mywordm☃");
+
+        assertSame(state.getMaskedWord().get(0), state.getMaskedWord().get(6));
+        assertSame(LetterState.fromCodePoint('z'), state.getMissedGuesses().get(0));
+        assertSame(LetterState.fromCodePoint("𝄞".codePointAt(0)), state.getMissedGuesses().get(1));
+        assertEquals("𝄞", state.getMissedGuesses().get(1).getLetter());
+        assertSame(PlayState.codePointToString('☃'), state.getMaskedWord().get(7).getLetter());
+    }
+
     private List<String> getLetters(Collection<LetterState> letterStates) {
         return letterStates.stream()
                             .map((ls) -> ls.getLetter())
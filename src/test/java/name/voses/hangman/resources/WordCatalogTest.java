@@ -0,0 +1,83 @@
+package name.voses.hangman.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class WordCatalogTest {
+    private static final List<String> WORDS = List.of("staff", "abyss", "día", "☃man", "zigzagging", "abyss", "  ", "😀ok");
+
+    @Test
+    public void testDropsDuplicatesAndBlanks() {
+        WordCatalog catalog = WordCatalog.compile(WORDS);
+
+        assertEquals(6, catalog.size());
+    }
+
+    @Test
+    public void testRefusesWordsWithSurroundingWhitespace() {
+        // kept verbatim rather than trimmed, so a padded word is a config mistake to fix
+        assertThrows(IllegalArgumentException.class, () -> WordCatalog.compile(List.of("staff", " abyss")));
+        assertThrows(IllegalArgumentException.class, () -> WordCatalog.compile(List.of("staff", "abyss\t")));
+    }
+
+    @Test
+    public void testIndexesMatchComputedIndexes() {
+        WordCatalog catalog = WordCatalog.compile(WORDS);
+
+        for (int w = 0; w < catalog.size(); w++) {
+            WordIndex fromCatalog = catalog.get(w);
+            WordIndex computed = WordIndex.of(fromCatalog.getWord());
+            assertTrue(WORDS.contains(fromCatalog.getWord()), fromCatalog.getWord());
+            assertSameIndex(computed, fromCatalog);
+            assertSameIndex(computed, catalog.indexFor(fromCatalog.getWord()));
+        }
+    }
+
+    @Test
+    public void testLooksUpWordsNotInTheCatalog() {
+        WordCatalog catalog = WordCatalog.compile(WORDS);
+
+        WordIndex index = catalog.indexFor("abruptly");
+        assertEquals("abruptly", index.getWord());
+        assertSameIndex(WordIndex.of("abruptly"), index);
+    }
+
+    @Test
+    public void testBuildsTheSameStateFromTheCatalog() {
+        WordCatalog catalog = WordCatalog.compile(WORDS);
+        String[] guesses = new String[] { "z", "g", "q", "a" };
+
+        PlayState fromCatalog = PlayState.build(3, guesses, catalog.indexFor("zigzagging"));
+        PlayState computed = PlayState.build(3, guesses, "zigzagging");
+
+        assertEquals(computed.getRemainingWrongGuesses(), fromCatalog.getRemainingWrongGuesses());
+        assertEquals(computed.getMaskedWord().size(), fromCatalog.getMaskedWord().size());
+        for (int i = 0; i < computed.getMaskedWord().size(); i++) {
+            assertEquals(computed.getMaskedWord().get(i).getLetter(), fromCatalog.getMaskedWord().get(i).getLetter());
+        }
+    }
+
+    private void assertSameIndex(WordIndex expected, WordIndex actual) {
+        assertEquals(expected.getWord(), actual.getWord());
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.letterCount(), actual.letterCount());
+        assertEquals(expected.getLetterMask(), actual.getLetterMask());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.codePointAt(i), actual.codePointAt(i));
+            assertEquals(expected.letterAtPosition(i), actual.letterAtPosition(i));
+            assertEquals(expected.position(i), actual.position(i));
+        }
+        for (int l = 0; l < expected.letterCount(); l++) {
+            assertEquals(expected.letter(l), actual.letter(l));
+            assertEquals(l, actual.letterIndex(expected.letter(l)));
+            assertEquals(expected.positionsStart(l), actual.positionsStart(l));
+            assertEquals(expected.positionsEnd(l), actual.positionsEnd(l));
+        }
+        assertEquals(-1, actual.letterIndex('#'));
+    }
+}
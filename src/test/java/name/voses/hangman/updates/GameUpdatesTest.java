@@ -0,0 +1,134 @@
+package name.voses.hangman.updates;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import name.voses.hangman.persistence.InMemoryGameInfoService;
+import name.voses.hangman.resources.Game;
+import name.voses.hangman.resources.WordCatalog;
+
+public class GameUpdatesTest {
+    // Records the ids of the events sent, optionally holding up every send until released. Sends
+    // and completes lock the emitter, like SseEmitter's do.
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> ids = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            String event = builder.build().stream().map((data) -> data.getData().toString()).collect(Collectors.joining());
+            ids.add(event.substring("id:".length(), event.indexOf('\n')));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed.countDown();
+        }
+
+        private boolean awaitCompleted() throws InterruptedException {
+            return completed.await(5, TimeUnit.SECONDS);
+        }
+
+        private void awaitIds(int count) throws InterruptedException {
+            for (int i = 0; i < 500 && ids.size() < count; i++) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final InMemoryGameInfoService store =
+        new InMemoryGameInfoService(WordCatalog.compile(List.of("abruptly")), 100, Duration.ofHours(1), metricRegistry);
+    private final GameUpdates gameUpdates =
+        new GameUpdates(store, new ObjectMapper().writer(), 2, Duration.ofMinutes(1), Duration.ZERO, 2, metricRegistry);
+
+    @AfterEach
+    public void closeUpdates() {
+        gameUpdates.close();
+    }
+
+    @Test
+    public void sendsEachNewStateOnceToEveryWatcher() throws Exception {
+        Game game = store.createGame(5);
+        RecordingEmitter first = new RecordingEmitter(new CountDownLatch(0));
+        RecordingEmitter second = new RecordingEmitter(new CountDownLatch(0));
+        gameUpdates.watch(game, first);
+        gameUpdates.watch(game, second);
+
+        Game guessed = store.guessLetter(game.getId(), "a").getGame();
+        gameUpdates.publish(guessed);
+        // the same state again, and an older one, aren't sent
+        gameUpdates.publish(guessed);
+        gameUpdates.publish(game);
+
+        first.awaitIds(2);
+        second.awaitIds(2);
+        assertEquals(List.of("0", "1"), first.ids);
+        assertEquals(List.of("0", "1"), second.ids);
+        assertEquals(1, metricRegistry.counter("name.voses.hangman.updates.GameUpdates.published").getCount());
+    }
+
+    @Test
+    public void endsStreamOnceGameIsOver() throws Exception {
+        Game game = store.createGame(1);
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        gameUpdates.watch(game, emitter);
+
+        Game lost = store.guessLetter(game.getId(), "☃").getGame();
+        gameUpdates.publish(lost);
+
+        assertTrue(emitter.awaitCompleted());
+        assertEquals(List.of("0", "1"), emitter.ids);
+    }
+
+    @Test
+    public void disconnectsSlowConsumers() throws Exception {
+        Game game = store.createGame(10);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(new CountDownLatch(0));
+        gameUpdates.watch(game, slow);
+        gameUpdates.watch(game, fast);
+
+        // the slow watcher is stuck sending the first state, two more fill its buffer
+        for (String letter : List.of("a", "b", "c")) {
+            Game guessed = store.guessLetter(game.getId(), letter).getGame();
+            gameUpdates.publish(guessed);
+            fast.awaitIds(guessed.getPlayState().getGuessedLetterCount() + 1);
+        }
+
+        // the fast watcher isn't held up by the slow one being closed mid send
+        assertEquals(List.of("0", "1", "2", "3"), fast.ids);
+        assertEquals(1, metricRegistry.counter("name.voses.hangman.updates.GameUpdates.slowConsumers").getCount());
+
+        // and the slow one completes once its send is done, without the states it fell behind on
+        release.countDown();
+        assertTrue(slow.awaitCompleted());
+        assertEquals(List.of("0"), slow.ids);
+    }
+}